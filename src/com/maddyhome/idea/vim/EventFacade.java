@@ -19,8 +19,10 @@
 package com.maddyhome.idea.vim;
 
 import com.intellij.openapi.Disposable;
+import com.intellij.openapi.actionSystem.ActionManager;
 import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.actionSystem.ShortcutSet;
+import com.intellij.openapi.actionSystem.ex.AnActionListener;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.EditorFactory;
@@ -79,6 +81,10 @@ public class EventFacade {
     action.unregisterCustomShortcutSet(component);
   }
 
+  public void addAnActionListener(@NotNull AnActionListener listener, @NotNull Disposable parentDisposable) {
+    ActionManager.getInstance().addAnActionListener(listener, parentDisposable);
+  }
+
   public void addFileEditorManagerListener(@NotNull Project project, @NotNull FileEditorManagerListener listener) {
     final MessageBusConnection connection = project.getMessageBus().connect();
     connection.subscribe(FileEditorManagerListener.FILE_EDITOR_MANAGER, listener);
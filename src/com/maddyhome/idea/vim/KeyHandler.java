@@ -39,6 +39,9 @@ import com.maddyhome.idea.vim.extension.VimExtensionHandler;
 import com.maddyhome.idea.vim.group.RegisterGroup;
 import com.maddyhome.idea.vim.helper.DigraphSequence;
 import com.maddyhome.idea.vim.helper.EditorDataContext;
+import com.maddyhome.idea.vim.helper.KeystrokeStats;
+import com.maddyhome.idea.vim.helper.MessageHelper;
+import com.maddyhome.idea.vim.helper.Msg;
 import com.maddyhome.idea.vim.helper.RunnableHelper;
 import com.maddyhome.idea.vim.helper.StringHelper;
 import com.maddyhome.idea.vim.key.*;
@@ -48,9 +51,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.event.KeyEvent;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
+import java.util.*;
 
 /**
  * This handlers every keystroke that the user can argType except those that are still valid hotkeys for various Idea
@@ -129,11 +130,15 @@ public class KeyHandler {
 
   public void handleKey(@NotNull Editor editor, @NotNull KeyStroke key, @NotNull DataContext context,
                         boolean allowKeyMappings) {
+    // The motions held back by the coalescer were typed before this key
+    MotionCoalescer.getInstance().flush();
     VimPlugin.clearError();
     // All the editor actions should be performed with top level editor!!!
     // Be careful: all the EditorActionHandler implementation should correctly process InjectedEditors
     editor = InjectedLanguageUtil.getTopLevelEditor(editor);
     final CommandState editorState = CommandState.getInstance(editor);
+    final CommandState.Mode mode = editorState.getMode();
+    final KeystrokeStats stats = KeystrokeStats.getInstance();
 
     // If this is a "regular" character keystroke, get the character
     char chKey = key.getKeyChar() == KeyEvent.CHAR_UNDEFINED ? 0 : key.getKeyChar();
@@ -146,7 +151,7 @@ public class KeyHandler {
       // Update the count
       count = count * 10 + (chKey - '0');
     }
-    else if (allowKeyMappings && handleKeyMapping(editor, key, context)) {
+    else if (allowKeyMappings && handleKeyMapping(editor, key, context, mode)) {
       return;
     }
     // Pressing delete while entering a count "removes" the last digit entered
@@ -161,7 +166,9 @@ public class KeyHandler {
     // If we got this far the user is entering a command or supplying an argument to an entered command.
     // First let's check to see if we are at the point of expecting a single character argument to a command.
     else if (currentArg == Argument.Type.CHARACTER) {
+      final long start = System.nanoTime();
       handleCharArgument(key, chKey);
+      stats.record(KeystrokeStats.Stage.ARGUMENT, mode, start);
     }
     // If we are this far, then the user must be entering a command or a non-single-character argument
     // to an entered command. Let's figure out which it is
@@ -171,6 +178,7 @@ public class KeyHandler {
 
       // Ask the key/action tree if this is an appropriate key at this point in the command and if so,
       // return the node matching this keystroke
+      final long start = System.nanoTime();
       final Node node = editorState.getCurrentNode().getChild(key);
 
       if (handleDigraph(editor, key, context, node)) {
@@ -180,18 +188,21 @@ public class KeyHandler {
       // If this is a branch node we have entered only part of a multi-key command
       if (node instanceof BranchNode) {
         handleBranchNode(editor, context, editorState, chKey, (BranchNode)node);
+        stats.record(KeystrokeStats.Stage.LOOKUP, mode, start);
       }
       // If this is a command node the user has entered a valid key sequence of a known command
       else if (node instanceof CommandNode) {
         handleCommandNode(editor, context, (CommandNode)node);
+        stats.record(KeystrokeStats.Stage.LOOKUP, mode, start);
       }
       // If this is an argument node then the last keystroke was not part of the current command but should
       // be the first keystroke of the argument of the current command
       else if (node instanceof ArgumentNode) {
         shouldRecord = handleArgumentNode(editor, key, context, editorState, (ArgumentNode)node);
+        stats.record(KeystrokeStats.Stage.ARGUMENT, mode, start);
       }
       else {
-        if (lastWasBS && lastChar != 0 && Options.getInstance().isSet("digraph")) {
+        if (lastWasBS && lastChar != 0 && Options.getInstance().digraph.getValue()) {
           char dig = VimPlugin.getDigraph().getDigraph(lastChar, key.getKeyChar());
           key = KeyStroke.getKeyStroke(dig);
         }
@@ -241,35 +252,38 @@ public class KeyHandler {
   }
 
   private boolean handleKeyMapping(@NotNull final Editor editor, @NotNull final KeyStroke key,
-                                   @NotNull final DataContext context) {
+                                   @NotNull final DataContext context, @NotNull CommandState.Mode mode) {
+    final long start = System.nanoTime();
     final CommandState commandState = CommandState.getInstance(editor);
     commandState.stopMappingTimer();
 
-    final List<KeyStroke> mappingKeys = commandState.getMappingKeys();
-    final List<KeyStroke> fromKeys = new ArrayList<KeyStroke>(mappingKeys);
-    fromKeys.add(key);
-
     final MappingMode mappingMode = commandState.getMappingMode();
     if (MappingMode.NVO.contains(mappingMode) && (state != State.NEW_COMMAND || currentArg != Argument.Type.NONE)) {
+      KeystrokeStats.getInstance().record(KeystrokeStats.Stage.MAPPING, mode, start);
       return false;
     }
 
     final KeyMapping mapping = VimPlugin.getKey().getKeyMapping(mappingMode);
-    final MappingInfo currentMappingInfo = mapping.get(fromKeys);
-    final MappingInfo prevMappingInfo = mapping.get(mappingKeys);
+    final KeyMapping.MappingNode prevNode = commandState.getMappingNode();
+    final KeyMapping.MappingNode node = (prevNode != null ? prevNode : mapping.getRoot()).getChild(key);
+    final MappingInfo currentMappingInfo = node != null ? node.getMappingInfo() : null;
+    final MappingInfo prevMappingInfo = prevNode != null ? prevNode.getMappingInfo() : null;
     final MappingInfo mappingInfo = currentMappingInfo != null ? currentMappingInfo : prevMappingInfo;
 
+    // Only the lookup is measured here, the keys the mapping expands to are measured when they are handled
+    KeystrokeStats.getInstance().record(KeystrokeStats.Stage.MAPPING, mode, start);
+
     final Application application = ApplicationManager.getApplication();
 
-    if (mapping.isPrefix(fromKeys)) {
-      mappingKeys.add(key);
-      if (!application.isUnitTestMode() && Options.getInstance().isSet(Options.TIMEOUT)) {
+    if (node != null && node.isPrefix()) {
+      commandState.setMappingNode(node);
+      if (!application.isUnitTestMode() && Options.getInstance().timeout.getValue()) {
         commandState.startMappingTimer(actionEvent -> application.invokeLater(() -> {
-          mappingKeys.clear();
+          commandState.setMappingNode(null);
           if (editor.isDisposed()) {
             return;
           }
-          for (KeyStroke keyStroke : fromKeys) {
+          for (KeyStroke keyStroke : node.getKeys()) {
             handleKey(editor, keyStroke, new EditorDataContext(editor), false);
           }
         }, ModalityState.stateForComponent(editor.getComponent())));
@@ -277,85 +291,114 @@ public class KeyHandler {
       return true;
     }
     else if (mappingInfo != null) {
-      mappingKeys.clear();
-      final Runnable handleMappedKeys = new Runnable() {
-        @Override
-        public void run() {
-          if (editor.isDisposed()) {
-            return;
-          }
-          final List<KeyStroke> toKeys = mappingInfo.getToKeys();
-          final VimExtensionHandler extensionHandler = mappingInfo.getExtensionHandler();
-          final EditorDataContext currentContext = new EditorDataContext(editor);
-          if (toKeys != null) {
-            final boolean fromIsPrefix = isPrefix(mappingInfo.getFromKeys(), toKeys);
-            boolean first = true;
-            for (KeyStroke keyStroke : toKeys) {
-              final boolean recursive = mappingInfo.isRecursive() && !(first && fromIsPrefix);
-              handleKey(editor, keyStroke, currentContext, recursive);
-              first = false;
-            }
-          }
-          else if (extensionHandler != null) {
-            final CommandProcessor processor = CommandProcessor.getInstance();
-            processor.executeCommand(editor.getProject(),
-                                     () -> extensionHandler.execute(editor, context),
-                                     "Vim " + extensionHandler.getClass().getSimpleName(),
-                                     null);
-          }
-
-          // NB: mappingInfo MUST be non-null here, so if equal
-          //  then prevMappingInfo is also non-null; this also
-          //  means that the prev mapping was a prefix, but the
-          //  next key typed (`key`) was not part of that
-          if (prevMappingInfo == mappingInfo) {
-            // post to end of queue so it's handled AFTER
-            //  an <Plug> mapping is invoked (since that
-            //  will also get posted)
-            Runnable handleRemainingKey = new Runnable() {
-              @Override
-              public void run() {
-                handleKey(editor, key, currentContext);
-              }
-            };
-
-            if (application.isUnitTestMode()) {
-              handleRemainingKey.run();
-            }
-            else {
-              application.invokeLater(handleRemainingKey);
-            }
-          }
-        }
-      };
-      if (application.isUnitTestMode()) {
-        handleMappedKeys.run();
-      }
-      else {
-        application.invokeLater(handleMappedKeys);
+      commandState.setMappingNode(null);
+      if (prevMappingInfo == mappingInfo) {
+        // The previous keys were a complete mapping and a prefix of a longer one, but the typed key didn't continue
+        // the longer one, so it's handled on its own after the mapping
+        mappedKeys.addFirst(new MappedKey(key, null, true, mappingDepth));
       }
+      expandMapping(editor, context, mappingInfo);
       return true;
     }
     else {
-      final List<KeyStroke> unhandledKeys = new ArrayList<KeyStroke>(mappingKeys);
-      mappingKeys.clear();
-      for (KeyStroke keyStroke : unhandledKeys) {
-        handleKey(editor, keyStroke, context, false);
+      if (prevNode != null) {
+        commandState.setMappingNode(null);
+        for (KeyStroke keyStroke : prevNode.getKeys()) {
+          handleKey(editor, keyStroke, context, false);
+        }
       }
       return false;
     }
   }
 
-  private static <T> boolean isPrefix(@NotNull List<T> list1, @NotNull List<T> list2) {
-    if (list1.size() > list2.size()) {
-      return false;
+  /**
+   * Queues the keys of a mapping in front of the keys still to be handled and handles them unless that's already
+   * being done further up the stack.
+   *
+   * The keys of nested mappings go through the same queue, so the depth of the mappings, limited by 'maxmapdepth', is
+   * counted per key and doesn't grow the stack.
+   */
+  private void expandMapping(@NotNull Editor editor, @NotNull DataContext context, @NotNull MappingInfo mappingInfo) {
+    final int depth = mappingDepth + 1;
+    if (depth > Options.getInstance().maxmapdepth.value()) {
+      mappedKeys.clear();
+      VimPlugin.showMessage(MessageHelper.message(Msg.E223));
+      VimPlugin.indicateError();
+      reset(editor);
+      return;
     }
-    for (int i = 0; i < list1.size(); i++) {
-      if (!list1.get(i).equals(list2.get(i))) {
-        return false;
+    final List<KeyStroke> toKeys = mappingInfo.getToKeys();
+    final VimExtensionHandler extensionHandler = mappingInfo.getExtensionHandler();
+    if (toKeys != null) {
+      final boolean[] remap = mappingInfo.getRemapFlags();
+      for (int i = remap.length - 1; i >= 0; i--) {
+        mappedKeys.addFirst(new MappedKey(toKeys.get(i), null, remap[i], depth));
       }
     }
-    return true;
+    else if (extensionHandler != null) {
+      mappedKeys.addFirst(new MappedKey(null, extensionHandler, false, depth));
+    }
+    if (!handlingMappedKeys) {
+      handleMappedKeys(editor, context);
+    }
+  }
+
+  /**
+   * Handles the queued keys of mappings.
+   *
+   * Extension handlers may run a nested event loop, e.g. to wait for an input key, and an ex entry runs the command
+   * as a separate command. So an extension handler is posted to the event queue, and the keys after it or after the
+   * key that starts an ex entry are handled in a later event, in the same order.
+   */
+  private void handleMappedKeys(@NotNull final Editor editor, @NotNull DataContext context) {
+    final Application application = ApplicationManager.getApplication();
+    final CommandState commandState = CommandState.getInstance(editor);
+    handlingMappedKeys = true;
+    try {
+      while (!mappedKeys.isEmpty() && !editor.isDisposed()) {
+        final MappedKey mappedKey = mappedKeys.removeFirst();
+        mappingDepth = mappedKey.depth;
+        boolean deferred = false;
+        if (mappedKey.extensionHandler != null) {
+          final VimExtensionHandler extensionHandler = mappedKey.extensionHandler;
+          final DataContext handlerContext = context;
+          final Runnable handler = () -> CommandProcessor.getInstance().executeCommand(
+            editor.getProject(), () -> extensionHandler.execute(editor, handlerContext),
+            "Vim " + extensionHandler.getClass().getSimpleName(), null);
+          if (application.isUnitTestMode()) {
+            handler.run();
+          }
+          else {
+            application.invokeLater(handler);
+            deferred = true;
+          }
+        }
+        else if (mappedKey.key != null) {
+          final boolean wasExEntry = commandState.getMode() == CommandState.Mode.EX_ENTRY;
+          handleKey(editor, mappedKey.key, context, mappedKey.remap);
+          deferred = !wasExEntry && commandState.getMode() == CommandState.Mode.EX_ENTRY &&
+                     !application.isUnitTestMode();
+        }
+        if (deferred && !mappedKeys.isEmpty()) {
+          final List<MappedKey> rest = new ArrayList<MappedKey>(mappedKeys);
+          application.invokeLater(() -> {
+            if (editor.isDisposed()) {
+              return;
+            }
+            mappedKeys.addAll(rest);
+            if (!handlingMappedKeys) {
+              handleMappedKeys(editor, new EditorDataContext(editor));
+            }
+          });
+          return;
+        }
+      }
+    }
+    finally {
+      handlingMappedKeys = false;
+      mappingDepth = 0;
+      mappedKeys.clear();
+    }
   }
 
   private void handleEditorReset(@NotNull Editor editor, @NotNull KeyStroke key, @NotNull final DataContext context) {
@@ -495,9 +538,18 @@ public class KeyHandler {
       reset(editor);
     }
     if (ApplicationManager.getApplication().isDispatchThread()) {
+      final String name = commandNames.computeIfAbsent(cmd.getAction(), KeyHandler::getCommandName);
+      if (editorState.isMotionCommand(cmd)) {
+        motionRunner.init(editor, context, cmd, key);
+        try {
+          CommandProcessor.getInstance().executeCommand(project, motionReadAction, name, motionRunner);
+        }
+        finally {
+          motionRunner.init(null, null, null, null);
+        }
+        return;
+      }
       Runnable action = new ActionRunner(editor, context, cmd, key);
-      String name = cmd.getAction().getTemplatePresentation().getText();
-      name = name != null ? "Vim " + name : "";
       if (type.isWrite()) {
         RunnableHelper.runWriteCommand(project, action, name, action);
       }
@@ -510,12 +562,16 @@ public class KeyHandler {
     }
   }
 
+  @NotNull
+  private static String getCommandName(@NotNull AnAction action) {
+    final String text = action.getTemplatePresentation().getText();
+    return text != null ? "Vim " + text : "";
+  }
+
   private boolean handleArgumentNode(@NotNull Editor editor, @NotNull KeyStroke key, @NotNull DataContext context,
                                      @NotNull CommandState editorState, @NotNull ArgumentNode node) {
     // Create a new command based on what the user has typed so far, excluding this keystroke.
-    Command cmd = new Command(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags());
-    cmd.setKeys(keys);
-    currentCmd.push(cmd);
+    currentCmd.push(createCommand(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags()));
     // What type of argument does this command expect?
     switch (node.getArgType()) {
       case DIGRAPH:
@@ -558,15 +614,11 @@ public class KeyHandler {
       // We have been expecting a motion argument - is this one?
       if (node.getCmdType() == Command.Type.MOTION) {
         // Create the motion command and add it to the stack
-        Command cmd = new Command(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags());
-        cmd.setKeys(keys);
-        currentCmd.push(cmd);
+        currentCmd.push(createCommand(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags()));
       }
       else if (node.getCmdType() == Command.Type.RESET) {
         currentCmd.clear();
-        Command cmd = new Command(1, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags());
-        cmd.setKeys(keys);
-        currentCmd.push(cmd);
+        currentCmd.push(createCommand(1, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags()));
       }
       else {
         // Oops - this wasn't a motion command. The user goofed and typed something else
@@ -582,9 +634,23 @@ public class KeyHandler {
     }
     // The user entered a valid command that doesn't take any arguments
     else {
-      // Create the command and add it to the stack
-      Command cmd = new Command(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags());
-      cmd.setKeys(keys);
+      // Create the command and add it to the stack. A standalone motion never outlives its execution, so the
+      // motion command object of the editor is reused for it instead of allocating a new one on every keystroke
+      Command cmd = null;
+      if (node.getCmdType() == Command.Type.MOTION && currentCmd.isEmpty()) {
+        cmd = CommandState.getInstance(editor).takeMotionCommand();
+      }
+      if (cmd != null) {
+        cmd.init(count, node.getAction(), node.getFlags());
+        final List<KeyStroke> motionKeys = cmd.getKeys();
+        motionKeys.clear();
+        for (int i = 0; i < keys.size(); i++) {
+          motionKeys.add(keys.get(i));
+        }
+      }
+      else {
+        cmd = createCommand(count, node.getActionId(), node.getAction(), node.getCmdType(), node.getFlags());
+      }
       currentCmd.push(cmd);
 
       // This is a sanity check that the command has a valid action. This should only fail if the
@@ -595,6 +661,14 @@ public class KeyHandler {
     }
   }
 
+  @NotNull
+  private Command createCommand(int count, String actionId, AnAction action, @NotNull Command.Type type, int flags) {
+    final Command cmd = new Command(count, actionId, action, type, flags);
+    cmd.setKeys(keys);
+    keysShared = true;
+    return cmd;
+  }
+
   private void handleBranchNode(@NotNull Editor editor, @NotNull DataContext context, @NotNull CommandState editorState,
                                 char key, @NotNull BranchNode node) {
     // Flag that we aren't allowing any more count digits (unless it's OK)
@@ -657,6 +731,38 @@ public class KeyHandler {
     return false;
   }
 
+  /**
+   * Checks whether the key would run on its own as a motion that may be repeated by giving it a count instead.
+   *
+   * This is only true between commands in normal mode when the key isn't mapped and starts no other command.
+   *
+   * @param editor The editor the key is going to be typed into
+   * @param key    The keystroke
+   * @return true if typing the key N times moves the caret the same way as typing it once with a count of N
+   */
+  public boolean isRepeatableMotion(@NotNull Editor editor, @NotNull KeyStroke key) {
+    if (state != State.NEW_COMMAND || count != 0 || !currentCmd.isEmpty() || currentArg != Argument.Type.NONE ||
+        digraph != null) {
+      return false;
+    }
+    final CommandState editorState = CommandState.getInstance(editor);
+    if (editorState.getMode() != CommandState.Mode.COMMAND || editorState.getMappingMode() != MappingMode.NORMAL ||
+        editorState.getMappingNode() != null || editorState.isRecording()) {
+      return false;
+    }
+    if (VimPlugin.getKey().getKeyMapping(MappingMode.NORMAL).getRoot().getChild(key) != null) {
+      return false;
+    }
+    final Node node = editorState.getCurrentNode().getChild(key);
+    if (!(node instanceof CommandNode)) {
+      return false;
+    }
+    final CommandNode commandNode = (CommandNode)node;
+    return commandNode.getCmdType() == Command.Type.MOTION &&
+           (commandNode.getFlags() & Command.FLAG_SAVE_JUMP) == 0 &&
+           REPEATABLE_MOTIONS.contains(commandNode.getActionId());
+  }
+
   /**
    * Partially resets the state of this handler. Resets the command count, clears the key list, resets the key tree
    * node to the root for the current mode we are in.
@@ -665,10 +771,16 @@ public class KeyHandler {
    */
   private void partialReset(@Nullable Editor editor) {
     count = 0;
-    keys = new ArrayList<KeyStroke>();
+    if (keysShared) {
+      keys = new ArrayList<KeyStroke>();
+      keysShared = false;
+    }
+    else {
+      keys.clear();
+    }
     CommandState editorState = CommandState.getInstance(editor);
     editorState.stopMappingTimer();
-    editorState.getMappingKeys().clear();
+    editorState.setMappingNode(null);
     editorState.setCurrentNode(VimPlugin.getKey().getKeyRoot(editorState.getMappingMode()));
   }
 
@@ -683,6 +795,9 @@ public class KeyHandler {
     currentCmd.clear();
     currentArg = Argument.Type.NONE;
     digraph = null;
+    if (editor != null) {
+      CommandState.getInstance(editor).releaseMotionCommand();
+    }
   }
 
   /**
@@ -705,6 +820,10 @@ public class KeyHandler {
    */
   static class ActionRunner implements Runnable {
     public ActionRunner(Editor editor, DataContext context, Command cmd, KeyStroke key) {
+      init(editor, context, cmd, key);
+    }
+
+    void init(Editor editor, DataContext context, Command cmd, KeyStroke key) {
       this.editor = editor;
       this.context = context;
       this.cmd = cmd;
@@ -715,7 +834,10 @@ public class KeyHandler {
       CommandState editorState = CommandState.getInstance(editor);
       boolean wasRecording = editorState.isRecording();
 
+      final CommandState.Mode mode = editorState.getMode();
+      final long start = System.nanoTime();
       executeAction(cmd.getAction(), context);
+      KeystrokeStats.getInstance().recordAction(cmd.getAction(), mode, start);
       if (editorState.getMode() == CommandState.Mode.INSERT || editorState.getMode() == CommandState.Mode.REPLACE) {
         VimPlugin.getChange().processCommand(editor, cmd);
       }
@@ -744,10 +866,28 @@ public class KeyHandler {
       }
     }
 
-    private final Editor editor;
-    private final DataContext context;
-    private final Command cmd;
-    private final KeyStroke key;
+    private Editor editor;
+    private DataContext context;
+    private Command cmd;
+    private KeyStroke key;
+  }
+
+  /**
+   * A key of a mapping or an extension handler that is handled later, whether the key may be mapped again and the
+   * number of mappings it has gone through
+   */
+  private static class MappedKey {
+    @Nullable private final KeyStroke key;
+    @Nullable private final VimExtensionHandler extensionHandler;
+    private final boolean remap;
+    private final int depth;
+
+    MappedKey(@Nullable KeyStroke key, @Nullable VimExtensionHandler extensionHandler, boolean remap, int depth) {
+      this.key = key;
+      this.extensionHandler = extensionHandler;
+      this.remap = remap;
+      this.depth = depth;
+    }
   }
 
   private static enum State {
@@ -758,8 +898,31 @@ public class KeyHandler {
     BAD_COMMAND
   }
 
+  /**
+   * Motions where a count means repeating the motion, unlike "G" or "%" where it's a line number or a percentage
+   */
+  @NotNull private static final Set<String> REPEATABLE_MOTIONS = new HashSet<String>(Arrays.asList(
+    "VimMotionDown", "VimMotionUp", "VimMotionLeft", "VimMotionRight", "VimMotionLeftWrap", "VimMotionRightWrap",
+    "VimMotionDownFirstNonSpace", "VimMotionUpFirstNonSpace", "VimMotionWordLeft", "VimMotionWordRight",
+    "VimMotionBigWordLeft", "VimMotionBigWordRight", "VimMotionWordEndLeft", "VimMotionWordEndRight",
+    "VimMotionBigWordEndLeft", "VimMotionBigWordEndRight", "VimMotionCamelLeft", "VimMotionCamelRight",
+    "VimMotionCamelEndLeft", "VimMotionCamelEndRight", "VimMotionParagraphNext", "VimMotionParagraphPrevious",
+    "VimMotionSentenceStartNext", "VimMotionSentenceStartPrevious", "VimMotionSentenceEndNext",
+    "VimMotionSentenceEndPrevious"));
+
   private int count;
-  private List<KeyStroke> keys;
+  private List<KeyStroke> keys = new ArrayList<KeyStroke>();
+  private boolean keysShared;
+  @NotNull private final ActionRunner motionRunner = new ActionRunner(null, null, null, null);
+  @NotNull private final Runnable motionReadAction =
+    () -> ApplicationManager.getApplication().runReadAction(motionRunner);
+  @NotNull private final Map<AnAction, String> commandNames = new HashMap<AnAction, String>();
+  @NotNull private final Deque<MappedKey> mappedKeys = new ArrayDeque<MappedKey>();
+  private boolean handlingMappedKeys;
+  /**
+   * The number of mappings the key being handled has gone through
+   */
+  private int mappingDepth;
   private State state;
   @NotNull private final Stack<Command> currentCmd = new Stack<Command>();
   @NotNull private Argument.Type currentArg;
@@ -0,0 +1,177 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim;
+
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.actionSystem.ex.AnActionListener;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.event.EditorFactoryAdapter;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.psi.impl.source.tree.injected.InjectedLanguageUtil;
+import com.maddyhome.idea.vim.action.VimShortcutKeyAction;
+import com.maddyhome.idea.vim.helper.EditorDataContext;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+
+/**
+ * Sits in front of {@link KeyHandler} and merges repeated motions that queue up faster than they are handled.
+ *
+ * When a repeatable motion key such as "j" is held down the first keystroke runs right away. The identical keystrokes
+ * that arrive before the event queue gets back to us are only counted and then run as a single counted motion, so
+ * holding "j" for a while ends up as one "5j" instead of five separate commands. Any other key handles the pending
+ * motion first, so the order of the keystrokes is kept. Commands with side effects are never merged, see
+ * {@link KeyHandler#isRepeatableMotion(Editor, KeyStroke)}.
+ *
+ * This is a singleton.
+ */
+public class MotionCoalescer {
+  @NotNull private static final MotionCoalescer instance = new MotionCoalescer();
+
+  @Nullable private Editor pendingEditor;
+  @Nullable private KeyStroke pendingKey;
+  private int pendingCount;
+  private boolean flushScheduled;
+  @NotNull private final Runnable flushRunnable = this::flushScheduled;
+
+  @NotNull
+  public static MotionCoalescer getInstance() {
+    return instance;
+  }
+
+  private MotionCoalescer() {
+  }
+
+  /**
+   * Handles the keystroke typed by the user, possibly deferring it to be merged with identical keystrokes.
+   *
+   * @param editor The editor the key was typed into
+   * @param key    The keystroke typed by the user
+   */
+  public void handleKey(@NotNull Editor editor, @NotNull KeyStroke key) {
+    final KeyHandler handler = KeyHandler.getInstance();
+    editor = InjectedLanguageUtil.getTopLevelEditor(editor);
+    if (editor == pendingEditor && key.equals(pendingKey) && handler.isRepeatableMotion(editor, key)) {
+      pendingCount++;
+      return;
+    }
+    flush();
+    final boolean repeatable = handler.isRepeatableMotion(editor, key);
+    handler.handleKey(editor, key, new EditorDataContext(editor));
+    if (repeatable && !VimPlugin.isError()) {
+      open(editor, key);
+    }
+  }
+
+  /**
+   * Runs the pending motion right away.
+   *
+   * Anything else that acts on the editor has to flush first: {@link KeyHandler#handleKey} does it for all the keys
+   * that don't come from the user (mappings, macros, ex commands), {@link ActionFlusher} for IDE actions, and the
+   * mouse handler of the motion group for mouse clicks.
+   */
+  public void flush() {
+    final Editor editor = pendingEditor;
+    final KeyStroke key = pendingKey;
+    final int count = pendingCount;
+    pendingEditor = null;
+    pendingKey = null;
+    pendingCount = 0;
+    if (editor == null || key == null || count == 0 || editor.isDisposed()) {
+      return;
+    }
+    final KeyHandler handler = KeyHandler.getInstance();
+    final EditorDataContext context = new EditorDataContext(editor);
+    if (handler.isRepeatableMotion(editor, key)) {
+      final String digits = Integer.toString(count);
+      for (int i = 0; i < digits.length(); i++) {
+        handler.handleKey(editor, KeyStroke.getKeyStroke(digits.charAt(i)), context);
+      }
+      handler.handleKey(editor, key, context);
+    }
+    else {
+      // The state has been changed by something other than a keystroke since, so the motion can't be counted anymore
+      for (int i = 0; i < count && !VimPlugin.isError(); i++) {
+        handler.handleKey(editor, key, context);
+      }
+    }
+  }
+
+  /**
+   * Drops the pending motion without running it.
+   */
+  public void reset() {
+    pendingEditor = null;
+    pendingKey = null;
+    pendingCount = 0;
+    flushScheduled = false;
+  }
+
+  private void open(@NotNull Editor editor, @NotNull KeyStroke key) {
+    pendingEditor = editor;
+    pendingKey = key;
+    pendingCount = 0;
+    if (!flushScheduled) {
+      flushScheduled = true;
+      ApplicationManager.getApplication().invokeLater(flushRunnable);
+    }
+  }
+
+  private void flushScheduled() {
+    flushScheduled = false;
+    final Editor editor = pendingEditor;
+    final KeyStroke key = pendingKey;
+    final boolean merged = pendingCount > 0;
+    flush();
+    // The key is still coming in faster than it is handled, keep merging the keystrokes queued up in the meantime
+    if (merged && editor != null && key != null && !editor.isDisposed() && !VimPlugin.isError()) {
+      open(editor, key);
+    }
+  }
+
+  /**
+   * This class runs the pending motion before any IDE action, so it isn't applied after an action invoked later.
+   */
+  public static class ActionFlusher extends AnActionListener.Adapter {
+    @Override
+    public void beforeActionPerformed(AnAction action, DataContext dataContext, AnActionEvent event) {
+      // Our own shortcut keys go through the coalescer like the typed keys
+      if (!(action instanceof VimShortcutKeyAction) && action != VimShortcutKeyAction.getInstance()) {
+        getInstance().flush();
+      }
+    }
+  }
+
+  /**
+   * This class drops the pending motion of a closed editor, so the editor isn't kept around until the next key.
+   */
+  public static class EditorReleaseListener extends EditorFactoryAdapter {
+    @Override
+    public void editorReleased(@NotNull EditorFactoryEvent event) {
+      final MotionCoalescer coalescer = getInstance();
+      if (coalescer.pendingEditor == event.getEditor()) {
+        coalescer.reset();
+      }
+    }
+  }
+}
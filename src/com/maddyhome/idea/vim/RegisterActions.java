@@ -41,6 +41,8 @@ public class RegisterActions {
     registerNVOModesActions();
     registerCommandLineActions();
     registerVariousModesActions();
+
+    VimPlugin.getKey().freezeKeyRoots();
   }
 
   private static void registerVimCommandActions() {
@@ -188,7 +190,8 @@ public class RegisterActions {
   private static void registerCommandLineActions() {
     final KeyGroup parser = VimPlugin.getKey();
     parser
-      .registerAction(MappingMode.C, "VimProcessExEntry", Command.Type.OTHER_READ_WRITE, Command.FLAG_COMPLETE_EX,
+      .registerAction(MappingMode.C, "VimProcessExEntry", Command.Type.OTHER_SELF_SYNCHRONIZED,
+                      Command.FLAG_COMPLETE_EX,
                       new Shortcut[]{new Shortcut(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0)),
                         new Shortcut(KeyStroke.getKeyStroke(KeyEvent.VK_M, KeyEvent.CTRL_MASK)),
                         new Shortcut(KeyStroke.getKeyStroke((char)0x0a)),
@@ -610,7 +613,7 @@ public class RegisterActions {
                           new Shortcut("g&"));
     parser.registerAction(MappingMode.N, "VimRepeatChange", Command.Type.OTHER_WRITABLE,
                           new Shortcut('.'));
-    parser.registerAction(MappingMode.N, "VimRepeatExCommand", Command.Type.OTHER_WRITABLE,
+    parser.registerAction(MappingMode.N, "VimRepeatExCommand", Command.Type.OTHER_SELF_SYNCHRONIZED,
                           new Shortcut("@:"));
     parser.registerAction(MappingMode.N, "QuickJavaDoc", Command.Type.OTHER_READONLY,
                           new Shortcut('K'));
@@ -657,6 +660,8 @@ public class RegisterActions {
                             // TODO: <C-T> is a tag command similar to <C-O>, the tag stack is not implemented
                             new Shortcut(KeyStroke.getKeyStroke(KeyEvent.VK_T, KeyEvent.CTRL_MASK))
                           });
+    parser.registerAction(MappingMode.N, "VimMotionChangeNext", Command.Type.OTHER_READONLY, new Shortcut("g,"));
+    parser.registerAction(MappingMode.N, "VimMotionChangePrevious", Command.Type.OTHER_READONLY, new Shortcut("g;"));
 
     parser.registerAction(MappingMode.N, "VimFileGetAscii", Command.Type.OTHER_READONLY,
                           new Shortcut("ga"));
@@ -49,11 +49,16 @@ import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.wm.StatusBar;
 import com.intellij.openapi.wm.WindowManager;
 import com.intellij.util.io.HttpRequests;
+import com.maddyhome.idea.vim.action.VimShortcutKeyAction;
 import com.maddyhome.idea.vim.ex.CommandParser;
 import com.maddyhome.idea.vim.ex.vimscript.VimScriptParser;
 import com.maddyhome.idea.vim.group.*;
+import com.maddyhome.idea.vim.helper.BracketIndex;
 import com.maddyhome.idea.vim.helper.DocumentManager;
 import com.maddyhome.idea.vim.helper.MacKeyRepeat;
+import com.maddyhome.idea.vim.helper.ParagraphIndex;
+import com.maddyhome.idea.vim.helper.VimInfo;
+import com.maddyhome.idea.vim.option.OptionChangeListener;
 import com.maddyhome.idea.vim.option.Options;
 import com.maddyhome.idea.vim.ui.VimEmulationConfigurable;
 import org.jdom.Element;
@@ -67,6 +72,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URLEncoder;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * This plugin attempts to emulate the key binding and general functionality of Vim and gVim. See the supplied
@@ -91,6 +97,16 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
   public static final int STATE_VERSION = 4;
 
   private boolean error = false;
+  private boolean vimInfoLoaded = false;
+  /**
+   * The sum of the modification counts of the saved groups and the option changes when the viminfo file was last saved
+   */
+  private long savedVimInfoModificationCount = -1;
+  private int vimInfoOptionModificationCount = 0;
+  /**
+   * The data waiting to be written to the viminfo file by a pooled thread
+   */
+  @NotNull private final AtomicReference<Element> unsavedVimInfo = new AtomicReference<Element>();
 
   private int previousStateVersion = 0;
   private String previousKeyMap = "";
@@ -165,6 +181,8 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
     CommandParser.getInstance().registerHandlers();
 
     if (!ApplicationManager.getApplication().isUnitTestMode()) {
+      loadVimInfo();
+
       final File ideaVimRc = VimScriptParser.findIdeaVimRc();
       if (ideaVimRc != null) {
         VimScriptParser.executeFile(ideaVimRc);
@@ -177,15 +195,84 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
   @Override
   public void disposeComponent() {
     LOG.debug("disposeComponent");
+    saveVimInfo(true);
     turnOffPlugin();
     EventFacade.getInstance().restoreTypedActionHandler();
     LOG.debug("done");
   }
 
+  /**
+   * Reads the viminfo file before anything can change the data it holds, so nothing set in this session is lost.
+   */
+  private void loadVimInfo() {
+    final Element element = VimInfo.read();
+    if (element != null) {
+      mark.readData(element);
+      register.readData(element);
+      search.readData(element);
+      history.readData(element);
+    }
+    vimInfoLoaded = true;
+    savedVimInfoModificationCount = getVimInfoModificationCount();
+    // The limits of the 'viminfo' and 'history' options change what is saved
+    final OptionChangeListener optionListener = event -> vimInfoOptionModificationCount++;
+    Options.getInstance().viminfo.addOptionChangeListener(optionListener);
+    Options.getInstance().history.addOptionChangeListener(optionListener);
+  }
+
+  /**
+   * Saves the viminfo data if it has changed since it was last saved.
+   *
+   * @param wait Write the file right away instead of on a pooled thread
+   */
+  private void saveVimInfo(boolean wait) {
+    // Don't overwrite the file with empty data if it hasn't been read yet
+    if (!vimInfoLoaded) {
+      return;
+    }
+    final long modificationCount = getVimInfoModificationCount();
+    if (modificationCount == savedVimInfoModificationCount) {
+      return;
+    }
+    final Element element = new Element(VimInfo.ROOT);
+    mark.saveData(element);
+    register.saveData(element);
+    search.saveData(element);
+    history.saveData(element);
+    savedVimInfoModificationCount = modificationCount;
+    unsavedVimInfo.set(element);
+    if (wait) {
+      writeVimInfo();
+    }
+    else {
+      ApplicationManager.getApplication().executeOnPooledThread(this::writeVimInfo);
+    }
+  }
+
+  private long getVimInfoModificationCount() {
+    return (long)mark.getModificationCount() + register.getModificationCount() + search.getModificationCount() +
+           history.getModificationCount() + vimInfoOptionModificationCount;
+  }
+
+  /**
+   * Writes the latest unsaved data, the writes are serialized so older data never overwrites newer data
+   */
+  private void writeVimInfo() {
+    synchronized (unsavedVimInfo) {
+      final Element element = unsavedVimInfo.getAndSet(null);
+      if (element != null) {
+        VimInfo.write(element);
+      }
+    }
+  }
+
   @Override
   public Element getState() {
     LOG.debug("Saving state");
 
+    // The settings are saved periodically and on exit, the viminfo file is kept up to date along with them
+    saveVimInfo(false);
+
     final Element element = new Element("ideavim");
     // Save whether the plugin is enabled or not
     final Element state = new Element("state");
@@ -193,10 +280,6 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
     state.setAttribute("enabled", Boolean.toString(enabled));
     element.addContent(state);
 
-    mark.saveData(element);
-    register.saveData(element);
-    search.saveData(element);
-    history.saveData(element);
     key.saveData(element);
     editor.saveData(element);
 
@@ -219,6 +302,7 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
       previousKeyMap = state.getAttributeValue("keymap");
     }
 
+    // Older versions kept registers, marks, search state and history here instead of the viminfo file
     mark.readData(element);
     register.readData(element);
     search.readData(element);
@@ -337,18 +421,14 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
    * Indicate to the user that an error has occurred. Just beep.
    */
   public static void indicateError() {
-    if (ApplicationManager.getApplication().isUnitTestMode()) {
-      getInstance().error = true;
-    }
-    else if (!Options.getInstance().isSet("visualbell")) {
+    getInstance().error = true;
+    if (!ApplicationManager.getApplication().isUnitTestMode() && !Options.getInstance().visualbell.getValue()) {
       Toolkit.getDefaultToolkit().beep();
     }
   }
 
   public static void clearError() {
-    if (ApplicationManager.getApplication().isUnitTestMode()) {
-      getInstance().error = false;
-    }
+    getInstance().error = false;
   }
 
   public static void showMode(String msg) {
@@ -459,8 +539,13 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
 
     setupStatisticsReporter(eventFacade);
 
-    DocumentManager.getInstance().addDocumentListener(new MarkGroup.MarkUpdater());
     DocumentManager.getInstance().addDocumentListener(new SearchGroup.DocumentSearchListener());
+    DocumentManager.getInstance().addDocumentListener(new BracketIndex.DocumentUpdater());
+    DocumentManager.getInstance().addDocumentListener(new ParagraphIndex.DocumentUpdater());
+    eventFacade.addAnActionListener(new MotionCoalescer.ActionFlusher(), ApplicationManager.getApplication());
+    DocumentManager.getInstance().addDocumentListener(new MarkGroup.MarkUpdater());
+    eventFacade.addEditorFactoryListener(new MotionCoalescer.EditorReleaseListener(),
+                                         ApplicationManager.getApplication());
 
     eventFacade.addProjectManagerListener(new ProjectManagerAdapter() {
       @Override
@@ -468,6 +553,7 @@ public class VimPlugin implements ApplicationComponent, PersistentStateComponent
         eventFacade.addFileEditorManagerListener(project, new MotionGroup.MotionEditorChange());
         eventFacade.addFileEditorManagerListener(project, new FileGroup.SelectionCheck());
         eventFacade.addFileEditorManagerListener(project, new SearchGroup.EditorSelectionCheck());
+        eventFacade.addFileEditorManagerListener(project, new VimShortcutKeyAction.PrimaryEditorCheck());
       }
     });
   }
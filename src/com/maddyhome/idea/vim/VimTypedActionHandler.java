@@ -26,7 +26,6 @@ import com.intellij.openapi.editor.actionSystem.ActionPlan;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.actionSystem.TypedActionHandler;
 import com.intellij.openapi.editor.actionSystem.TypedActionHandlerEx;
-import com.maddyhome.idea.vim.helper.EditorDataContext;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
@@ -65,7 +64,7 @@ public class VimTypedActionHandler implements TypedActionHandlerEx {
   public void execute(@NotNull final Editor editor, final char charTyped, @NotNull final DataContext context) {
     if (isEnabled(editor)) {
       try {
-        handler.handleKey(editor, KeyStroke.getKeyStroke(charTyped), new EditorDataContext(editor));
+        MotionCoalescer.getInstance().handleKey(editor, KeyStroke.getKeyStroke(charTyped));
       }
       catch (Throwable e) {
         logger.error(e);
@@ -27,17 +27,20 @@ import com.intellij.openapi.actionSystem.*;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.ex.util.EditorUtil;
+import com.intellij.openapi.fileEditor.FileEditor;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.fileEditor.FileEditorManagerAdapter;
 import com.intellij.openapi.fileEditor.ex.FileEditorManagerEx;
 import com.intellij.openapi.keymap.KeymapUtil;
 import com.intellij.openapi.options.ShowSettingsUtil;
 import com.intellij.openapi.project.DumbAware;
 import com.intellij.openapi.project.Project;
-import com.maddyhome.idea.vim.KeyHandler;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.maddyhome.idea.vim.MotionCoalescer;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.action.change.insert.InsertExitModeAction;
 import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.helper.EditorData;
-import com.maddyhome.idea.vim.helper.EditorDataContext;
 import com.maddyhome.idea.vim.key.ShortcutOwner;
 import com.maddyhome.idea.vim.ui.VimEmulationConfigurable;
 import one.util.streamex.StreamEx;
@@ -102,7 +105,7 @@ public class VimShortcutKeyAction extends AnAction implements DumbAware {
       }
       // Should we use InjectedLanguageUtil.getTopLevelEditor(editor) here, as we did in former EditorKeyHandler?
       try {
-        KeyHandler.getInstance().handleKey(editor, keyStroke, new EditorDataContext(editor));
+        MotionCoalescer.getInstance().handleKey(editor, keyStroke);
       }
       catch (Throwable throwable) {
         ourLogger.error(throwable);
@@ -203,13 +206,21 @@ public class VimShortcutKeyAction extends AnAction implements DumbAware {
 
   /**
    * Checks if the editor is a primary editor in the main editing area.
+   *
+   * The answer is remembered for the editor unless it's a file editor that isn't open in the editing area yet.
    */
   private boolean isPrimaryEditor(@NotNull Editor editor) {
+    final Boolean cached = EditorData.isPrimaryEditor(editor);
+    if (cached != null) return cached;
     final Project project = editor.getProject();
     if (project == null) return false;
     final FileEditorManagerEx fileEditorManager = FileEditorManagerEx.getInstanceEx(project);
-    return StreamEx.of(fileEditorManager.getAllEditors())
+    final boolean primary = StreamEx.of(fileEditorManager.getAllEditors())
       .anyMatch(fileEditor -> editor.equals(EditorUtil.getEditorEx(fileEditor)));
+    if (primary || !EditorData.isFileEditor(editor)) {
+      EditorData.setPrimaryEditor(editor, primary);
+    }
+    return primary;
   }
 
   private boolean isExitInsertMode(@NotNull KeyStroke keyStroke) {
@@ -249,4 +260,20 @@ public class VimShortcutKeyAction extends AnAction implements DumbAware {
   private Editor getEditor(@NotNull AnActionEvent e) {
     return e.getData(PlatformDataKeys.EDITOR);
   }
+
+  /**
+   * This class forgets the cached primary editor status of the editors of an opened file, they could have been
+   * checked before the file editor was registered in the editing area.
+   */
+  public static class PrimaryEditorCheck extends FileEditorManagerAdapter {
+    @Override
+    public void fileOpened(@NotNull FileEditorManager source, @NotNull VirtualFile file) {
+      for (FileEditor fileEditor : source.getEditors(file)) {
+        final Editor editor = EditorUtil.getEditorEx(fileEditor);
+        if (editor != null) {
+          EditorData.setPrimaryEditor(editor, null);
+        }
+      }
+    }
+  }
 }
@@ -54,7 +54,7 @@ public class MotionLastColumnAction extends MotionEditorAction {
         allow = true;
       }
       else if (CommandState.getInstance(editor).getMode() == CommandState.Mode.VISUAL) {
-        BoundStringOption opt = (BoundStringOption)Options.getInstance().getOption("selection");
+        BoundStringOption opt = Options.getInstance().selection;
         if (!opt.getValue().equals("old")) {
           allow = true;
         }
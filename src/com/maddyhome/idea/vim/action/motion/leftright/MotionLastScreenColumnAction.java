@@ -53,7 +53,7 @@ public class MotionLastScreenColumnAction extends MotionEditorAction {
         allow = true;
       }
       else if (CommandState.getInstance(editor).getMode() == CommandState.Mode.VISUAL) {
-        BoundStringOption opt = (BoundStringOption)Options.getInstance().getOption("selection");
+        BoundStringOption opt = Options.getInstance().selection;
         if (!opt.getValue().equals("old")) {
           allow = true;
         }
@@ -190,9 +190,20 @@ public class Command {
    * @param flags  Any custom flags specific to this command
    */
   public Command(int count, String actionId, AnAction action, @NotNull Type type, int flags) {
+    this.type = type;
+    init(count, action, flags);
+  }
+
+  /**
+   * Reinitializes this command for another action of the same type so a command object can be reused
+   *
+   * @param count  The number entered prior to the command (zero if no specific number)
+   * @param action The action to be executed when the command is run
+   * @param flags  Any custom flags specific to this command
+   */
+  public void init(int count, AnAction action, int flags) {
     this.count = count;
     this.action = action;
-    this.type = type;
     this.flags = flags;
     this.argument = null;
 
@@ -21,8 +21,8 @@ package com.maddyhome.idea.vim.command;
 import com.intellij.openapi.editor.Editor;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.helper.EditorData;
+import com.maddyhome.idea.vim.key.KeyMapping;
 import com.maddyhome.idea.vim.key.ParentNode;
-import com.maddyhome.idea.vim.option.NumberOption;
 import com.maddyhome.idea.vim.option.Options;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -30,7 +30,6 @@ import org.jetbrains.annotations.Nullable;
 import javax.swing.*;
 import java.awt.event.ActionListener;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Stack;
 
 public class CommandState {
@@ -42,8 +41,10 @@ public class CommandState {
   @NotNull private final Stack<State> myStates = new Stack<State>();
   @NotNull private final State myDefaultState = new State(Mode.COMMAND, SubMode.NONE, MappingMode.NORMAL);
   @Nullable private Command myCommand;
+  @Nullable private Command myMotionCommand;
+  private boolean myMotionCommandTaken;
   @NotNull private ParentNode myCurrentNode = VimPlugin.getKey().getKeyRoot(getMappingMode());
-  @NotNull private final List<KeyStroke> myMappingKeys = new ArrayList<KeyStroke>();
+  @Nullable private KeyMapping.MappingNode myMappingNode;
   @NotNull private final Timer myMappingTimer;
   private int myFlags;
   private boolean myIsRecording = false;
@@ -104,17 +105,48 @@ public class CommandState {
     return myFlags;
   }
 
+  /**
+   * Takes the command object reused for the standalone motions of this editor.
+   *
+   * @return The command or null if it's still taken by a motion that hasn't finished yet
+   */
+  @Nullable
+  public Command takeMotionCommand() {
+    if (myMotionCommandTaken) {
+      return null;
+    }
+    if (myMotionCommand == null) {
+      myMotionCommand = new Command(0, null, null, Command.Type.MOTION, 0);
+      myMotionCommand.setKeys(new ArrayList<KeyStroke>());
+    }
+    myMotionCommandTaken = true;
+    return myMotionCommand;
+  }
+
+  public boolean isMotionCommand(@NotNull Command cmd) {
+    return cmd == myMotionCommand;
+  }
+
+  /**
+   * Gives the motion command back once the motion has finished, so the next motion can reuse it.
+   */
+  public void releaseMotionCommand() {
+    myMotionCommandTaken = false;
+  }
+
   public void setFlags(int flags) {
     this.myFlags = flags;
   }
 
   public void pushState(@NotNull Mode mode, @NotNull SubMode submode, @NotNull MappingMode mappingMode) {
     myStates.push(new State(mode, submode, mappingMode));
+    resetMappingNode();
     updateStatus();
   }
 
   public void popState() {
     myStates.pop();
+    resetMappingNode();
     updateStatus();
   }
 
@@ -133,16 +165,29 @@ public class CommandState {
     updateStatus();
   }
 
-  @NotNull
-  public List<KeyStroke> getMappingKeys() {
-    return myMappingKeys;
+  /**
+   * Returns the node of the key mapping trie reached by the keys typed so far or null if no mapping is pending.
+   */
+  @Nullable
+  public KeyMapping.MappingNode getMappingNode() {
+    return myMappingNode;
+  }
+
+  public void setMappingNode(@Nullable KeyMapping.MappingNode node) {
+    myMappingNode = node;
+  }
+
+  /**
+   * Drops the keys typed towards a mapping, the node they reached belongs to the mappings of another mode or to a
+   * mapping table that has changed since.
+   */
+  public void resetMappingNode() {
+    myMappingTimer.stop();
+    myMappingNode = null;
   }
 
   public void startMappingTimer(@NotNull ActionListener actionListener) {
-    final NumberOption timeoutLength = Options.getInstance().getNumberOption("timeoutlen");
-    if (timeoutLength != null) {
-      myMappingTimer.setInitialDelay(timeoutLength.value());
-    }
+    myMappingTimer.setInitialDelay(Options.getInstance().timeoutlen.value());
     for (ActionListener listener : myMappingTimer.getActionListeners()) {
       myMappingTimer.removeActionListener(listener);
     }
@@ -302,7 +347,7 @@ public class CommandState {
 
   private void updateStatus() {
     final StringBuilder msg = new StringBuilder();
-    if (Options.getInstance().isSet("showmode")) {
+    if (Options.getInstance().showmode.getValue()) {
       msg.append(getStatusString(myStates.size() - 1));
     }
 
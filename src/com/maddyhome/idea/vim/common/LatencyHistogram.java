@@ -0,0 +1,106 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations in nanoseconds.
+ *
+ * Values are counted in log-linear buckets: every power of two is split into {@link #SUB_BUCKETS} equal buckets, so
+ * reported percentiles are within 12.5% of the recorded values.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_MAGNITUDE = 36;
+  private static final long MAX_VALUE = (1L << MAX_MAGNITUDE) - 1;
+  private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+  private final AtomicLongArray myCounts = new AtomicLongArray(BUCKETS);
+  private final AtomicLong myMax = new AtomicLong();
+
+  public void record(long nanos) {
+    final long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+    myCounts.incrementAndGet(bucketIndex(value));
+    long max = myMax.get();
+    while (value > max && !myMax.compareAndSet(max, value)) {
+      max = myMax.get();
+    }
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      myCounts.set(i, 0);
+    }
+    myMax.set(0);
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      count += myCounts.get(i);
+    }
+    return count;
+  }
+
+  public long getMax() {
+    return myMax.get();
+  }
+
+  /**
+   * Returns the upper bound of the bucket containing the given percentile of the recorded values.
+   *
+   * @param percentile The percentile from 0 to 100
+   * @return The value in nanoseconds, zero if nothing has been recorded
+   */
+  public long getPercentile(double percentile) {
+    final long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    final long rank = Math.max(1, (long)Math.ceil(count * percentile / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += myCounts.get(i);
+      if (seen >= rank) {
+        return Math.min(bucketStart(i + 1) - 1, getMax());
+      }
+    }
+    return getMax();
+  }
+
+  private static int bucketIndex(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int)value;
+    }
+    final int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    final int sub = (int)(value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+  }
+
+  private static long bucketStart(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    final int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    final int sub = index % SUB_BUCKETS;
+    return (long)(SUB_BUCKETS + sub) << (magnitude - SUB_BUCKET_BITS);
+  }
+}
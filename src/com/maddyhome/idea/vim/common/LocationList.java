@@ -0,0 +1,197 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim.common;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A list of file locations of a fixed capacity kept in a ring buffer, the oldest location is dropped when it is full.
+ *
+ * A list with unique lines also keeps the slots of the locations by file and line. Adding a location on the same line
+ * as an older one only marks the slot of the older one as removed, so adding takes constant time. The buffer has room
+ * for twice the capacity, the removed slots are squeezed out when it runs full or when a location is accessed by its
+ * index, which takes constant time again after that.
+ */
+public class LocationList<T extends FileLocation> extends AbstractList<T> {
+  @NotNull private static final Object REMOVED = new Object();
+
+  private final int capacity;
+  @NotNull private final Object[] slots;
+  private int head;
+  /**
+   * The number of slots in use including the removed ones, the first and the last one are never removed
+   */
+  private int used;
+  private int size;
+  @Nullable private final Map<String, Map<Integer, Integer>> lines;
+
+  /**
+   * @param capacity    The maximum number of locations
+   * @param uniqueLines Whether adding a location removes the location on the same line of the same file
+   */
+  public LocationList(int capacity, boolean uniqueLines) {
+    this.capacity = capacity;
+    slots = new Object[capacity * 2];
+    lines = uniqueLines ? new HashMap<>() : null;
+  }
+
+  @NotNull
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    if (used != size) {
+      compact();
+    }
+    return (T)slots[(head + index) % slots.length];
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean add(@NotNull T location) {
+    if (lines != null) {
+      final Map<Integer, Integer> fileLines = lines.get(location.getFilename());
+      final Integer previous = fileLines != null ? fileLines.get(location.getLogicalLine()) : null;
+      if (previous != null) {
+        removeSlot(previous);
+      }
+    }
+    if (size == capacity) {
+      // The oldest location is never a removed one
+      removeSlot(head);
+    }
+    if (used == slots.length) {
+      compact();
+    }
+    final int slot = (head + used) % slots.length;
+    slots[slot] = location;
+    used++;
+    size++;
+    modCount++;
+    if (lines != null) {
+      lines.computeIfAbsent(location.getFilename(), k -> new HashMap<>()).put(location.getLogicalLine(), slot);
+    }
+    return true;
+  }
+
+  /**
+   * Replaces the newest location, or adds it to an empty list
+   */
+  public void setLast(@NotNull T location) {
+    if (size == 0) {
+      add(location);
+    }
+    else {
+      remove(size - 1);
+      add(location);
+    }
+  }
+
+  @Nullable
+  public T getLast() {
+    return size > 0 ? get(size - 1) : null;
+  }
+
+  @NotNull
+  @Override
+  public T remove(int index) {
+    final T location = get(index);
+    removeSlot((head + index) % slots.length);
+    return location;
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(slots, null);
+    head = 0;
+    used = 0;
+    size = 0;
+    modCount++;
+    if (lines != null) {
+      lines.clear();
+    }
+  }
+
+  /**
+   * Marks the slot as removed and drops the removed slots at both ends
+   */
+  @SuppressWarnings("unchecked")
+  private void removeSlot(int slot) {
+    final T location = (T)slots[slot];
+    slots[slot] = REMOVED;
+    size--;
+    modCount++;
+    if (lines != null) {
+      final Map<Integer, Integer> fileLines = lines.get(location.getFilename());
+      final Integer indexed = fileLines != null ? fileLines.get(location.getLogicalLine()) : null;
+      if (indexed != null && indexed == slot) {
+        fileLines.remove(location.getLogicalLine());
+        if (fileLines.isEmpty()) {
+          lines.remove(location.getFilename());
+        }
+      }
+    }
+    while (used > 0 && slots[head] == REMOVED) {
+      slots[head] = null;
+      head = (head + 1) % slots.length;
+      used--;
+    }
+    while (used > 0 && slots[(head + used - 1) % slots.length] == REMOVED) {
+      slots[(head + used - 1) % slots.length] = null;
+      used--;
+    }
+  }
+
+  /**
+   * Moves the locations over the removed slots, so the locations can be accessed by their index again
+   */
+  @SuppressWarnings("unchecked")
+  private void compact() {
+    int count = 0;
+    for (int i = 0; i < used; i++) {
+      final Object location = slots[(head + i) % slots.length];
+      if (location == REMOVED) {
+        continue;
+      }
+      final int slot = (head + count) % slots.length;
+      slots[slot] = location;
+      if (lines != null) {
+        final T fileLocation = (T)location;
+        lines.get(fileLocation.getFilename()).put(fileLocation.getLogicalLine(), slot);
+      }
+      count++;
+    }
+    for (int i = count; i < used; i++) {
+      slots[(head + i) % slots.length] = null;
+    }
+    used = count;
+  }
+}
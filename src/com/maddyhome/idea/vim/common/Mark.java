@@ -18,6 +18,7 @@
 
 package com.maddyhome.idea.vim.common;
 
+import com.intellij.openapi.editor.RangeMarker;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -25,6 +26,9 @@ import java.util.Comparator;
 
 /**
  * This represents a file mark. Each mark has a line and a column, the file it applies to, and the mark key
+ *
+ * While the file is open the line of the mark is tracked by a range marker covering it, so the mark follows the edits
+ * of the file without any work on our side. The mark is cleared when the marked line is deleted.
  */
 public class Mark extends FileLocation {
   /**
@@ -55,6 +59,60 @@ public class Mark extends FileLocation {
     return protocol;
   }
 
+  @Override
+  public int getLogicalLine() {
+    if (marker != null && marker.isValid()) {
+      return marker.getDocument().getLineNumber(marker.getStartOffset());
+    }
+    return super.getLogicalLine();
+  }
+
+  @Override
+  public boolean isClear() {
+    return (marker != null && !marker.isValid()) || super.isClear();
+  }
+
+  @Override
+  public void clear() {
+    setMarker(null);
+    super.clear();
+  }
+
+  /**
+   * Checks if the line of the mark is tracked by a range marker
+   */
+  public boolean isAttached() {
+    return marker != null;
+  }
+
+  /**
+   * Starts tracking the line of the mark with the range marker, replacing the previous one
+   *
+   * @param marker The marker covering the marked line, null to stop tracking
+   */
+  public void setMarker(@Nullable RangeMarker marker) {
+    if (this.marker != null && this.marker != marker) {
+      this.marker.dispose();
+    }
+    this.marker = marker;
+  }
+
+  /**
+   * Stops tracking the line of the mark, keeping just the line it was last at
+   */
+  public void detach() {
+    if (marker == null) {
+      return;
+    }
+    if (marker.isValid()) {
+      setLogicalLine(getLogicalLine());
+      setMarker(null);
+    }
+    else {
+      clear();
+    }
+  }
+
   public boolean equals(@Nullable Object object) {
     if (object instanceof Mark) {
       if (((Mark)object).key == key) {
@@ -88,4 +146,5 @@ public class Mark extends FileLocation {
 
   private final char key;
   private final String protocol;
+  @Nullable private RangeMarker marker;
 }
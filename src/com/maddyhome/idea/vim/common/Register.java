@@ -25,21 +25,36 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.event.KeyEvent;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 
 /**
  * Represents a register.
+ *
+ * Registers filled with text keep it as a string, the keystrokes are created only when the register is played back as
+ * a macro. Registers filled by recording a macro keep the recorded keystrokes.
  */
 public class Register {
   private char name;
   @NotNull private final SelectionType type;
-  @NotNull private final List<KeyStroke> keys;
+  /**
+   * The text of the register, null if it holds keystrokes or text that has been appended to since it was last read
+   */
+  @Nullable private String text;
+  /**
+   * The text appended to the register, kept so that repeated appends don't copy the whole text every time
+   */
+  @Nullable private StringBuilder appendedText;
+  /**
+   * The recorded keystrokes, null if the register holds text
+   */
+  @Nullable private List<KeyStroke> keys;
 
   public Register(char name, @NotNull SelectionType type, @NotNull String text) {
     this.name = name;
     this.type = type;
-    this.keys = StringHelper.stringToKeys(text);
+    this.text = text;
   }
 
   public Register(char name, @NotNull SelectionType type, @NotNull List<KeyStroke> keys) {
@@ -72,33 +87,76 @@ public class Register {
    */
   @Nullable
   public String getText() {
-    final StringBuilder builder = new StringBuilder();
-    for (KeyStroke key : keys) {
-      final char c = key.getKeyChar();
-      if (c == KeyEvent.CHAR_UNDEFINED) {
-        return null;
+    if (keys != null) {
+      final StringBuilder builder = new StringBuilder(keys.size());
+      for (KeyStroke key : keys) {
+        final char c = key.getKeyChar();
+        if (c == KeyEvent.CHAR_UNDEFINED) {
+          return null;
+        }
+        builder.append(c);
       }
-      builder.append(c);
+      return builder.toString();
+    }
+    if (text == null && appendedText != null) {
+      text = appendedText.toString();
     }
-    return builder.toString();
+    return text;
   }
 
   /**
    * Get the sequence of keys in the register.
+   *
+   * For registers holding text a new list of keystrokes is created on every call.
    */
   @NotNull
   public List<KeyStroke> getKeys() {
-    return keys;
+    if (keys != null) {
+      return keys;
+    }
+    final String text = getText();
+    return text != null ? StringHelper.stringToKeys(text) : new ArrayList<KeyStroke>();
+  }
+
+  /**
+   * Get the first keys of the register, at most the supplied number of them.
+   *
+   * Only these keys are created for registers holding text.
+   */
+  @NotNull
+  public List<KeyStroke> getKeys(int limit) {
+    if (keys != null) {
+      return keys.size() > limit ? keys.subList(0, limit) : keys;
+    }
+    final String text = getText();
+    if (text == null) {
+      return new ArrayList<KeyStroke>();
+    }
+    return StringHelper.stringToKeys(text.length() > limit ? text.substring(0, limit) : text);
   }
 
   /**
    * Append the supplied text to any existing text.
    */
   public void addText(@NotNull String text) {
-    addKeys(StringHelper.stringToKeys(text));
+    if (keys != null) {
+      keys.addAll(StringHelper.stringToKeys(text));
+      return;
+    }
+    if (appendedText == null) {
+      final String current = this.text != null ? this.text : "";
+      appendedText = new StringBuilder(current.length() + text.length()).append(current);
+    }
+    appendedText.append(text);
+    this.text = null;
   }
 
   public void addKeys(@NotNull List<KeyStroke> keys) {
+    if (this.keys == null) {
+      this.keys = getKeys();
+      text = null;
+      appendedText = null;
+    }
     this.keys.addAll(keys);
   }
 
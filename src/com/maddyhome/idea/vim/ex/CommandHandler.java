@@ -76,6 +76,11 @@ public abstract class CommandHandler {
    */
   public static final int READ_ONLY = 1024;
   public static final int DONT_SAVE_LAST = 2048;
+  /**
+   * Indicates that the command takes the write action for its changes itself, so it can wait for a file or an
+   * external process without holding the write lock
+   */
+  public static final int SELF_SYNCHRONIZED = 4096;
 
   /**
    * Create the handler
@@ -18,8 +18,10 @@
 package com.maddyhome.idea.vim.ex;
 
 import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.command.SelectionType;
 import com.maddyhome.idea.vim.common.Register;
@@ -32,6 +34,7 @@ import com.maddyhome.idea.vim.helper.Msg;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -72,6 +75,7 @@ public class CommandParser {
 
     new ActionListHandler();
     new AsciiHandler();
+    new ChangesHandler();
     new CmdFilterHandler();
     new CopyTextHandler();
     new DeleteLinesHandler();
@@ -103,6 +107,7 @@ public class CommandParser {
     new PromptReplaceHandler();
     new PutLinesHandler();
     new QuitHandler();
+    new ReadHandler();
     new RedoHandler();
     new RegistersHandler();
     new RepeatHandler();
@@ -117,6 +122,7 @@ public class CommandParser {
     new SplitHandler();
     new SubstituteHandler();
     new UndoHandler();
+    new VimStatsHandler();
     new WriteAllHandler();
     new WriteHandler();
     new WriteNextFileHandler();
@@ -142,7 +148,8 @@ public class CommandParser {
     if (reg != null) {
       final String text = reg.getText();
       if (text != null) {
-        processCommand(editor, context, text, count);
+        // The command is already in the history and in the register, so run it as a batch
+        processCommand(editor, context, text, count, true);
         return true;
       }
     }
@@ -161,6 +168,23 @@ public class CommandParser {
    */
   public int processCommand(@NotNull Editor editor, @NotNull DataContext context, @NotNull String cmd,
                             int count) throws ExException {
+    return processCommand(editor, context, cmd, count, false);
+  }
+
+  /**
+   * Parse and execute an Ex command
+   *
+   * @param editor  The editor to run the command in
+   * @param context The data context
+   * @param cmd     The text of the command
+   * @param count   The count entered before the colon
+   * @param batch   True if the command is repeated as part of a batch, like {@code @:} with a count. Such commands
+   *                are neither added to the history nor stored in the {@code :} register again.
+   * @return A bitwise collection of flags, if any, from the result of running the command.
+   * @throws ExException if any part of the command is invalid or unknown
+   */
+  public int processCommand(@NotNull Editor editor, @NotNull DataContext context, @NotNull String cmd,
+                            int count, boolean batch) throws ExException {
     // Nothing entered
     int result = 0;
     if (cmd.length() == 0) {
@@ -168,39 +192,75 @@ public class CommandParser {
     }
 
     // Save the command history
-    VimPlugin.getHistory().addEntry(HistoryGroup.COMMAND, cmd);
+    if (!batch) {
+      VimPlugin.getHistory().addEntry(HistoryGroup.COMMAND, cmd);
+    }
 
-    // Parse the command
-    final ExCommand command = parse(cmd);
-    final CommandHandler handler = getCommandHandler(command);
+    // Parse the command or reuse the plan from the last time it was run
+    final CommandPlan plan = getPlan(cmd);
+    final CommandHandler handler = plan.getHandler();
 
     if (handler == null) {
-      final String message = MessageHelper.message(Msg.NOT_EX_CMD, command.getCommand());
+      final String message = MessageHelper.message(Msg.NOT_EX_CMD, plan.getCommand());
       throw new InvalidCommandException(message, cmd);
     }
 
-    if ((handler.getArgFlags() & CommandHandler.WRITABLE) > 0 && !editor.getDocument().isWritable()) {
+    if ((plan.getFlags() & CommandHandler.WRITABLE) > 0 && !editor.getDocument().isWritable()) {
       VimPlugin.indicateError();
       return result | RES_READONLY;
     }
 
-    // Run the command
-    boolean ok = handler.process(editor, context, command, count);
-    if (ok && (handler.getArgFlags() & CommandHandler.DONT_SAVE_LAST) == 0) {
-      VimPlugin.getRegister().storeTextInternal(editor, new TextRange(-1, -1), cmd,
-                                                                  SelectionType.CHARACTER_WISE, ':', false);
+    // Run the command, in a write action unless the handler takes it itself
+    final ExCommand command = plan.createCommand();
+    final boolean ok;
+    if ((plan.getFlags() & CommandHandler.SELF_SYNCHRONIZED) != 0) {
+      ok = handler.process(editor, context, command, count);
+    }
+    else {
+      ok = ApplicationManager.getApplication().runWriteAction(
+        (ThrowableComputable<Boolean, ExException>)() -> handler.process(editor, context, command, count));
+    }
+    if (ok && !batch && (plan.getFlags() & CommandHandler.DONT_SAVE_LAST) == 0) {
+      final Register last = VimPlugin.getRegister().getRegister(':');
+      if (last == null || !cmd.equals(last.getText())) {
+        VimPlugin.getRegister().storeTextInternal(editor, new TextRange(-1, -1), cmd,
+                                                  SelectionType.CHARACTER_WISE, ':', false);
+      }
     }
 
-    if ((handler.getArgFlags() & CommandHandler.DONT_REOPEN) != 0) {
+    if ((plan.getFlags() & CommandHandler.DONT_REOPEN) != 0) {
       result |= RES_DONT_REOPEN;
     }
 
     return result;
   }
 
+  /**
+   * Gets the compiled plan for the command text, parsing the text only if it isn't cached yet
+   *
+   * @param cmd The text of the command
+   * @return The plan for the command
+   * @throws ExException if the text is syntactically incorrect
+   */
+  @NotNull
+  public CommandPlan getPlan(@NotNull String cmd) throws ExException {
+    CommandPlan plan = plans.get(cmd);
+    if (plan == null) {
+      plan = compile(cmd);
+      if (plan.isCacheable()) {
+        plans.put(cmd, plan);
+      }
+    }
+    return plan;
+  }
+
   @Nullable
   public CommandHandler getCommandHandler(@NotNull ExCommand command) {
-    final String cmd = command.getCommand();
+    return getCommandHandler(command.getCommand());
+  }
+
+  @Nullable
+  private CommandHandler getCommandHandler(@NotNull String cmd) {
     // If there is no command, just a range, use the 'goto line' handler
     if (cmd.length() == 0) {
       return new GotoLineHandler();
@@ -225,12 +285,18 @@ public class CommandParser {
    */
   @NotNull
   public ExCommand parse(@NotNull String cmd) throws ExException {
+    return compile(cmd).createCommand();
+  }
+
+  @NotNull
+  private CommandPlan compile(@NotNull String cmd) throws ExException {
     // This is a complicated state machine that should probably be rewritten
     if (logger.isDebugEnabled()) {
       logger.debug("processing `" + cmd + "'");
     }
     int state = STATE_START;
-    Ranges ranges = new Ranges(); // The list of ranges
+    List<Range> ranges = new ArrayList<>(); // The list of ranges
+    boolean cacheable = true; // Short patterns depend on the last search at parse time
     StringBuilder command = new StringBuilder(); // The command
     StringBuilder argument = new StringBuilder(); // The command's argument(s)
     StringBuffer location = null; // The current range text
@@ -309,6 +375,7 @@ public class CommandParser {
             else if (ch == '\\') {
               location.append(ch);
               state = STATE_RANGE_SHORT_PATTERN;
+              cacheable = false;
               reprocess = false;
             }
             else if (ch == '/' || ch == '?') {
@@ -430,7 +497,7 @@ public class CommandParser {
               reprocess = false;
               break;
             }
-            ranges.addRange(range);
+            Collections.addAll(ranges, range);
             // Could there be more ranges - nope - at end, start command
             if (ch == ':' || ch == '\n') {
               state = STATE_COMMAND;
@@ -547,7 +614,9 @@ public class CommandParser {
     if (matcher.matches()) {
       argumentString = matcher.group(1);
     }
-    return new ExCommand(ranges, command.toString(), argumentString);
+    final String commandString = command.toString();
+    return new CommandPlan(ranges.toArray(new Range[0]), commandString, argumentString,
+                           getCommandHandler(commandString), cacheable);
   }
 
   /**
@@ -561,6 +630,8 @@ public class CommandParser {
     if (names == null) {
       return;
     }
+    // Cached plans may refer to the handlers that were registered before
+    plans.clear();
     for (CommandName name : names) {
       CommandNode node = root;
       String text = name.getRequired();
@@ -601,10 +672,18 @@ public class CommandParser {
   }
 
   @NotNull private final CommandNode root = new CommandNode();
+  @NotNull private final Map<String, CommandPlan> plans = new LinkedHashMap<String, CommandPlan>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, CommandPlan> eldest) {
+      return size() > MAX_CACHED_PLANS;
+    }
+  };
   private boolean registered = false;
 
   private static CommandParser ourInstance;
 
+  private static final int MAX_CACHED_PLANS = 100;
+
   private static final int STATE_START = 1;
   private static final int STATE_COMMAND = 10;
   private static final int STATE_CMD_ARG = 11;
@@ -0,0 +1,82 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim.ex;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An Ex command that has been parsed and resolved to its handler.
+ *
+ * Plans are immutable so they can be cached by the command text and executed over and over again. Each execution
+ * gets its own {@link ExCommand}, since the range state is computed lazily and the argument may be changed by the
+ * handler.
+ */
+public class CommandPlan {
+  @NotNull private final Range[] ranges;
+  @NotNull private final String command;
+  @NotNull private final String argument;
+  @Nullable private final CommandHandler handler;
+  private final boolean cacheable;
+
+  CommandPlan(@NotNull Range[] ranges, @NotNull String command, @NotNull String argument,
+              @Nullable CommandHandler handler, boolean cacheable) {
+    this.ranges = ranges;
+    this.command = command;
+    this.argument = argument;
+    this.handler = handler;
+    this.cacheable = cacheable;
+  }
+
+  /**
+   * Creates a new command for a single execution of this plan
+   */
+  @NotNull
+  public ExCommand createCommand() {
+    final Ranges res = new Ranges();
+    res.addRange(ranges);
+    return new ExCommand(res, command, argument);
+  }
+
+  @NotNull
+  public String getCommand() {
+    return command;
+  }
+
+  @NotNull
+  public String getArgument() {
+    return argument;
+  }
+
+  @Nullable
+  public CommandHandler getHandler() {
+    return handler;
+  }
+
+  public int getFlags() {
+    return handler != null ? handler.getArgFlags() : 0;
+  }
+
+  /**
+   * Plans that captured state at parse time, like the last search pattern for \/ ranges, can't be reused
+   */
+  boolean isCacheable() {
+    return cacheable;
+  }
+}
@@ -25,12 +25,15 @@ import com.maddyhome.idea.vim.ui.ExOutputPanel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Iterator;
+
 /**
  * @author vlan
  */
 public class ExOutputModel {
   @NotNull private final Editor myEditor;
   @Nullable private String myText;
+  @Nullable private Iterator<String> myLines;
 
   private ExOutputModel(@NotNull Editor editor) {
     myEditor = editor;
@@ -48,20 +51,49 @@ public class ExOutputModel {
 
   public void output(@NotNull String text) {
     myText = text;
+    myLines = null;
     if (!ApplicationManager.getApplication().isUnitTestMode()) {
       ExOutputPanel.getInstance(myEditor).setText(text);
     }
   }
 
+  /**
+   * Shows output that is produced lazily, one line at a time.
+   *
+   * The output panel pulls only the lines it is about to display, so commands with huge output don't have to build
+   * it all up front.
+   *
+   * @param lines The output lines without line separators
+   */
+  public void output(@NotNull Iterator<String> lines) {
+    myText = null;
+    myLines = lines;
+    if (!ApplicationManager.getApplication().isUnitTestMode()) {
+      ExOutputPanel.getInstance(myEditor).setLines(lines);
+    }
+  }
+
   public void clear() {
     myText = null;
+    myLines = null;
     if (!ApplicationManager.getApplication().isUnitTestMode()) {
       ExOutputPanel.getInstance(myEditor).deactivate(false);
     }
   }
 
+  /**
+   * Gets the whole output as text. Lazily produced output is collected in full, so this is meant for tests.
+   */
   @Nullable
   public String getText() {
+    if (myText == null && myLines != null) {
+      final StringBuilder builder = new StringBuilder();
+      while (myLines.hasNext()) {
+        builder.append(myLines.next()).append('\n');
+      }
+      myText = builder.toString();
+      myLines = null;
+    }
     return myText;
   }
 }
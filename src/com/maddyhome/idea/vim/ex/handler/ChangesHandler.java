@@ -0,0 +1,75 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim.ex.handler;
+
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.editor.Editor;
+import com.maddyhome.idea.vim.VimPlugin;
+import com.maddyhome.idea.vim.common.Jump;
+import com.maddyhome.idea.vim.ex.*;
+import com.maddyhome.idea.vim.helper.EditorHelper;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.*;
+
+/**
+ * Lists the change list of the current file.
+ */
+public class ChangesHandler extends CommandHandler {
+  public ChangesHandler() {
+    super(new CommandName[]{
+      new CommandName("changes", "")
+    }, ARGUMENT_FORBIDDEN);
+  }
+
+  public boolean execute(@NotNull Editor editor, @NotNull DataContext context, @NotNull ExCommand cmd) throws ExException {
+    final List<Jump> changes = VimPlugin.getMark().getChanges(editor);
+    final int index = VimPlugin.getMark().getChangeIndex(editor);
+
+    final int size = changes.size();
+    Stream<String> lines = IntStream.range(0, size)
+      .mapToObj(i -> formatChange(editor, changes.get(i), index - i));
+    if (index == size) {
+      lines = Stream.concat(lines, Stream.of(">"));
+    }
+    ExOutputModel.getInstance(editor).output(Stream.concat(Stream.of("change line  col text"), lines).iterator());
+
+    return true;
+  }
+
+  @NotNull
+  private static String formatChange(@NotNull Editor editor, @NotNull Jump change, int distance) {
+    final StringBuilder text = new StringBuilder();
+    text.append(distance == 0 ? "> " : "  ");
+    text.append(rightJustify(Integer.toString(Math.abs(distance)), 4, ' '));
+    text.append(' ');
+    text.append(rightJustify(Integer.toString(change.getLogicalLine() + 1), 5, ' '));
+    text.append(' ');
+    text.append(rightJustify(Integer.toString(change.getCol()), 4, ' '));
+    text.append(' ');
+    if (change.getLogicalLine() < EditorHelper.getLineCount(editor)) {
+      text.append(toKeyNotation(stringToKeys(EditorHelper.getLineText(editor, change.getLogicalLine()).trim())));
+    }
+    return text.toString();
+  }
+}
@@ -35,7 +35,7 @@ import java.io.IOException;
  */
 public class CmdFilterHandler extends CommandHandler {
   public CmdFilterHandler() {
-    super("!", "", RANGE_OPTIONAL | ARGUMENT_OPTIONAL | WRITABLE);
+    super("!", "", RANGE_OPTIONAL | ARGUMENT_OPTIONAL | WRITABLE | SELF_SYNCHRONIZED);
   }
 
   public boolean execute(@NotNull Editor editor, @NotNull DataContext context, @NotNull ExCommand cmd) throws ExException {
@@ -59,7 +59,7 @@ public class CmdFilterHandler extends CommandHandler {
       Ranges ranges = cmd.getRanges();
       if (ranges.size() == 0) {
         // Show command output in a window
-        String commandOutput = VimPlugin.getProcess().executeCommand(command, null);
+        String commandOutput = VimPlugin.getProcess().executeCommand(editor.getProject(), command, null);
         ExOutputModel.getInstance(editor).output(commandOutput);
         return true;
       }
@@ -30,6 +30,7 @@ import com.maddyhome.idea.vim.group.HistoryGroup;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *
@@ -126,51 +127,47 @@ public class HistoryHandler extends CommandHandler {
       return false;
     }
 
-    StringBuilder res = new StringBuilder();
+    Stream<String> res = Stream.empty();
     switch (key.charAt(0)) {
       case 'c':
-        res.append(processKey(HistoryGroup.COMMAND, f, l));
+        res = processKey(HistoryGroup.COMMAND, f, l);
         break;
       case 's':
-        res.append(processKey(HistoryGroup.SEARCH, f, l));
+        res = processKey(HistoryGroup.SEARCH, f, l);
         break;
       case 'e':
-        res.append(processKey(HistoryGroup.EXPRESSION, f, l));
+        res = processKey(HistoryGroup.EXPRESSION, f, l);
         break;
       case 'i':
-        res.append(processKey(HistoryGroup.INPUT, f, l));
+        res = processKey(HistoryGroup.INPUT, f, l);
         break;
       case 'a':
-        res.append(processKey(HistoryGroup.COMMAND, f, l));
-        res.append(processKey(HistoryGroup.SEARCH, f, l));
-        res.append(processKey(HistoryGroup.EXPRESSION, f, l));
-        res.append(processKey(HistoryGroup.INPUT, f, l));
+        res = Stream.concat(Stream.concat(processKey(HistoryGroup.COMMAND, f, l),
+                                          processKey(HistoryGroup.SEARCH, f, l)),
+                            Stream.concat(processKey(HistoryGroup.EXPRESSION, f, l),
+                                          processKey(HistoryGroup.INPUT, f, l)));
         break;
     }
 
-    ExOutputModel.getInstance(editor).output(res.toString());
+    ExOutputModel.getInstance(editor).output(res.iterator());
 
     return true;
   }
 
   @NotNull
-  private String processKey(String key, int start, int end) {
+  private Stream<String> processKey(String key, int start, int end) {
     if (logger.isDebugEnabled()) {
       logger.debug("process " + key + " " + start + "," + end);
     }
 
-    StringBuilder res = new StringBuilder();
-
-    res.append("      #  ").append(key).append(" ").append("history\n");
-
     String spaces = "       ";
     List<HistoryGroup.HistoryEntry> entries = VimPlugin.getHistory().getEntries(key, start, end);
-    for (HistoryGroup.HistoryEntry entry : entries) {
+    final Stream<String> lines = entries.stream().map(entry -> {
       String num = Integer.toString(entry.getNumber());
-      res.append(spaces.substring(num.length())).append(num).append("  ").append(entry.getEntry()).append("\n");
-    }
+      return spaces.substring(num.length()) + num + "  " + entry.getEntry();
+    });
 
-    return res.toString();
+    return Stream.concat(Stream.of("      #  " + key + " history"), lines);
   }
 
   private static final Logger logger = Logger.getInstance(HistoryHandler.class.getName());
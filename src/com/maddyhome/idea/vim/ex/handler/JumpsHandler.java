@@ -29,6 +29,8 @@ import com.maddyhome.idea.vim.helper.EditorHelper;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static com.maddyhome.idea.vim.helper.StringHelper.*;
 
@@ -46,48 +48,48 @@ public class JumpsHandler extends CommandHandler {
     List<Jump> jumps = VimPlugin.getMark().getJumps();
     int spot = VimPlugin.getMark().getJumpSpot();
 
-    String spaces = "     ";
-    StringBuilder text = new StringBuilder();
-    text.append("  jump line  col file/text\n");
-    int i = jumps.size();
-    for (Jump jump : jumps) {
-      if (i - spot - 1 == 0) {
-        text.append("> ");
-      }
-      else {
-        text.append("  ");
-      }
-      text.append(rightJustify(Integer.toString(Math.abs(i - spot - 1)), 3, ' '));
+    final int size = jumps.size();
+    Stream<String> lines = IntStream.range(0, size)
+      .mapToObj(index -> formatJump(editor, jumps.get(index), size - index - spot - 1));
+    if (spot == -1) {
+      lines = Stream.concat(lines, Stream.of(">"));
+    }
+    ExOutputModel.getInstance(editor).output(Stream.concat(Stream.of("  jump line  col file/text"), lines).iterator());
 
-      text.append(" ");
-      String num = Integer.toString(jump.getLogicalLine() + 1);
-      text.append(spaces.substring(0, 5 - num.length()));
-      text.append(num);
+    return true;
+  }
 
+  @NotNull
+  private static String formatJump(@NotNull Editor editor, @NotNull Jump jump, int distance) {
+    String spaces = "     ";
+    StringBuilder text = new StringBuilder();
+    if (distance == 0) {
+      text.append("> ");
+    }
+    else {
       text.append("  ");
-      num = Integer.toString(jump.getCol() + 1);
-      text.append(spaces.substring(0, 3 - num.length()));
-      text.append(num);
+    }
+    text.append(rightJustify(Integer.toString(Math.abs(distance)), 3, ' '));
 
-      text.append(" ");
-      VirtualFile vf = EditorData.getVirtualFile(editor);
-      if (vf != null && vf.getPath().equals(jump.getFilename())) {
-        text.append(toKeyNotation(stringToKeys(EditorHelper.getLineText(editor, jump.getLogicalLine()).trim())));
-      }
-      else {
-        text.append(jump.getFilename());
-      }
+    text.append(" ");
+    String num = Integer.toString(jump.getLogicalLine() + 1);
+    text.append(spaces.substring(0, 5 - num.length()));
+    text.append(num);
 
-      text.append("\n");
-      i--;
-    }
+    text.append("  ");
+    num = Integer.toString(jump.getCol() + 1);
+    text.append(spaces.substring(0, 3 - num.length()));
+    text.append(num);
 
-    if (spot == -1) {
-      text.append(">\n");
+    text.append(" ");
+    VirtualFile vf = EditorData.getVirtualFile(editor);
+    if (vf != null && vf.getPath().equals(jump.getFilename())) {
+      text.append(toKeyNotation(stringToKeys(EditorHelper.getLineText(editor, jump.getLogicalLine()).trim())));
+    }
+    else {
+      text.append(jump.getFilename());
     }
 
-    ExOutputModel.getInstance(editor).output(text.toString());
-
-    return true;
+    return text.toString();
   }
 }
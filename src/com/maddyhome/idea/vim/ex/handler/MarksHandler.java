@@ -29,6 +29,7 @@ import com.maddyhome.idea.vim.helper.EditorHelper;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 import static com.maddyhome.idea.vim.helper.StringHelper.stringToKeys;
 import static com.maddyhome.idea.vim.helper.StringHelper.toKeyNotation;
@@ -46,37 +47,38 @@ public class MarksHandler extends CommandHandler {
   public boolean execute(@NotNull Editor editor, @NotNull DataContext context, @NotNull ExCommand cmd) throws ExException {
     List<Mark> marks = VimPlugin.getMark().getMarks(editor);
 
+    final Stream<String> lines = marks.stream().map(mark -> formatMark(editor, mark));
+    ExOutputModel.getInstance(editor).output(Stream.concat(Stream.of("mark  line  col file/text"), lines).iterator());
+
+    return true;
+  }
+
+  @NotNull
+  private static String formatMark(@NotNull Editor editor, @NotNull Mark mark) {
     String spaces = "     ";
     StringBuilder text = new StringBuilder();
-    text.append("mark  line  col file/text\n");
-    for (Mark mark : marks) {
-      text.append(" ");
-      text.append(mark.getKey());
+    text.append(" ");
+    text.append(mark.getKey());
 
-      text.append("   ");
-      String num = Integer.toString(mark.getLogicalLine() + 1);
-      text.append(spaces.substring(0, 5 - num.length()));
-      text.append(num);
+    text.append("   ");
+    String num = Integer.toString(mark.getLogicalLine() + 1);
+    text.append(spaces.substring(0, 5 - num.length()));
+    text.append(num);
 
-      text.append("  ");
-      num = Integer.toString(mark.getCol() + 1);
-      text.append(spaces.substring(0, 3 - num.length()));
-      text.append(num);
+    text.append("  ");
+    num = Integer.toString(mark.getCol() + 1);
+    text.append(spaces.substring(0, 3 - num.length()));
+    text.append(num);
 
-      text.append(" ");
-      VirtualFile vf = EditorData.getVirtualFile(editor);
-      if (vf != null && vf.getPath().equals(mark.getFilename())) {
-        text.append(toKeyNotation(stringToKeys(EditorHelper.getLineText(editor, mark.getLogicalLine()).trim())));
-      }
-      else {
-        text.append(mark.getFilename());
-      }
-
-      text.append("\n");
+    text.append(" ");
+    VirtualFile vf = EditorData.getVirtualFile(editor);
+    if (vf != null && vf.getPath().equals(mark.getFilename())) {
+      text.append(toKeyNotation(stringToKeys(EditorHelper.getLineText(editor, mark.getLogicalLine()).trim())));
+    }
+    else {
+      text.append(mark.getFilename());
     }
 
-    ExOutputModel.getInstance(editor).output(text.toString());
-
-    return true;
+    return text.toString();
   }
 }
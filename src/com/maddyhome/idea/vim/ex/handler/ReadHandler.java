@@ -0,0 +1,113 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim.ex.handler;
+
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.text.StringUtil;
+import com.maddyhome.idea.vim.VimPlugin;
+import com.maddyhome.idea.vim.ex.CommandHandler;
+import com.maddyhome.idea.vim.ex.CommandName;
+import com.maddyhome.idea.vim.ex.ExCommand;
+import com.maddyhome.idea.vim.ex.ExException;
+import com.maddyhome.idea.vim.group.MotionGroup;
+import com.maddyhome.idea.vim.helper.MessageHelper;
+import com.maddyhome.idea.vim.helper.Msg;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * Inserts the contents of a file or the output of an external command below the given line.
+ */
+public class ReadHandler extends CommandHandler {
+  public ReadHandler() {
+    super(new CommandName[]{
+      new CommandName("r", "ead")
+    }, RANGE_OPTIONAL | ARGUMENT_OPTIONAL | WRITABLE | SELF_SYNCHRONIZED);
+  }
+
+  public boolean execute(@NotNull Editor editor, @NotNull DataContext context,
+                         @NotNull ExCommand cmd) throws ExException {
+    if (editor.isOneLineMode()) return false;
+
+    final String arg = cmd.getArgument();
+    final String text;
+    try {
+      if (arg.startsWith("!")) {
+        final String command = arg.substring(1).trim();
+        if (command.length() == 0) {
+          throw new ExException(MessageHelper.message(Msg.e_argreq));
+        }
+        text = StringUtil.convertLineSeparators(VimPlugin.getProcess().executeCommand(editor.getProject(), command,
+                                                                                      null));
+      }
+      else {
+        text = VimPlugin.getFile().readFile(editor, arg);
+        if (text == null) {
+          throw new ExException(MessageHelper.message(Msg.E484, arg));
+        }
+      }
+    }
+    catch (IOException e) {
+      throw new ExException(e.getMessage());
+    }
+
+    if (text.length() == 0) {
+      return true;
+    }
+
+    // The text is read outside of the write action, so the process or the file can't block other threads
+    ApplicationManager.getApplication().runWriteAction(() -> insertBelow(editor, cmd.getLine(editor, context), text));
+    return true;
+  }
+
+  private static void insertBelow(@NotNull Editor editor, int line, @NotNull String text) {
+    // Build the complete insertion first so the document is changed with a single write
+    final Document document = editor.getDocument();
+    final int offset;
+    final String insert;
+    if (line < 0) {
+      offset = 0;
+      insert = text.endsWith("\n") ? text : text + "\n";
+    }
+    else if (line + 1 < document.getLineCount()) {
+      offset = document.getLineStartOffset(line + 1);
+      insert = text.endsWith("\n") ? text : text + "\n";
+    }
+    else {
+      offset = document.getTextLength();
+      final CharSequence chars = document.getCharsSequence();
+      final boolean endsWithNewline = offset > 0 && chars.charAt(offset - 1) == '\n';
+      if (endsWithNewline) {
+        insert = text.endsWith("\n") ? text : text + "\n";
+      }
+      else {
+        insert = "\n" + StringUtil.trimEnd(text, "\n");
+      }
+    }
+    document.insertString(offset, insert);
+
+    final int firstLine = document.getLineNumber(insert.startsWith("\n") ? offset + 1 : offset);
+    MotionGroup.moveCaret(editor, editor.getCaretModel().getPrimaryCaret(),
+                          VimPlugin.getMotion().moveCaretToLineStartSkipLeading(editor, firstLine));
+  }
+}
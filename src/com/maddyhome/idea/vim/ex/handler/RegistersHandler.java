@@ -20,18 +20,23 @@ package com.maddyhome.idea.vim.ex.handler;
 
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.text.StringUtil;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.common.Register;
 import com.maddyhome.idea.vim.ex.*;
+import com.maddyhome.idea.vim.helper.EditorHelper;
 import com.maddyhome.idea.vim.helper.StringHelper;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  *
  */
 public class RegistersHandler extends CommandHandler {
+  private static final int MIN_WIDTH = 80;
+
   public RegistersHandler() {
     super(new CommandName[]{
       new CommandName("di", "splay"),
@@ -42,18 +47,13 @@ public class RegistersHandler extends CommandHandler {
   public boolean execute(@NotNull final Editor editor, @NotNull DataContext context, @NotNull ExCommand cmd) throws ExException {
     List<Register> registers = VimPlugin.getRegister().getRegisters();
 
-    StringBuilder text = new StringBuilder();
-    text.append("--- Registers ---\n");
-    for (Register reg : registers) {
-      text.append("\"");
-      text.append(reg.getName());
-
-      text.append("   ");
-      text.append(StringHelper.toKeyNotation(reg.getKeys()));
-      text.append("\n");
-    }
-
-    ExOutputModel.getInstance(editor).output(text.toString());
+    // Like in Vim only the part of the contents that fits the screen line is shown, and register contents are
+    // converted to key notation only when the output panel gets to them
+    final int width = Math.max(EditorHelper.getScreenWidth(editor), MIN_WIDTH) - 5;
+    final Stream<String> lines = registers.stream()
+      .map(reg -> "\"" + reg.getName() + "   " +
+                  StringUtil.first(StringHelper.toKeyNotation(reg.getKeys(width)), width, false));
+    ExOutputModel.getInstance(editor).output(Stream.concat(Stream.of("--- Registers ---"), lines).iterator());
 
     return true;
   }
@@ -0,0 +1,110 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.ex.handler;
+
+import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.util.io.FileUtil;
+import com.maddyhome.idea.vim.ex.CommandHandler;
+import com.maddyhome.idea.vim.ex.ExCommand;
+import com.maddyhome.idea.vim.ex.ExException;
+import com.maddyhome.idea.vim.ex.ExOutputModel;
+import com.maddyhome.idea.vim.helper.KeystrokeStats;
+import com.maddyhome.idea.vim.helper.MessageHelper;
+import com.maddyhome.idea.vim.helper.Msg;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.stream.Stream;
+
+/**
+ * Shows or exports the keystroke latency statistics.
+ *
+ * <pre>
+ *   :vimstats             show p50/p99/max per stage, mode and action
+ *   :vimstats reset       discard the collected statistics
+ *   :vimstats csv {file}  write the statistics to a CSV file
+ *   :vimstats json {file} write the statistics to a JSON file
+ * </pre>
+ */
+public class VimStatsHandler extends CommandHandler {
+  public VimStatsHandler() {
+    super("vimstats", "", RANGE_FORBIDDEN | ARGUMENT_OPTIONAL);
+  }
+
+  public boolean execute(@NotNull Editor editor, @NotNull DataContext context,
+                         @NotNull ExCommand cmd) throws ExException {
+    final KeystrokeStats stats = KeystrokeStats.getInstance();
+    final String arg = cmd.getArgument().trim();
+    final int space = arg.indexOf(' ');
+    final String action = space >= 0 ? arg.substring(0, space) : arg;
+    final String path = space >= 0 ? arg.substring(space + 1).trim() : "";
+
+    switch (action) {
+      case "":
+        ExOutputModel.getInstance(editor).output(Stream.concat(
+          Stream.of(String.format("%-32s %-10s %8s %10s %10s %10s", "Stage/Action", "Mode", "Count", "p50", "p99",
+                                  "Max")),
+          stats.getRows().stream().map(VimStatsHandler::formatRow)).iterator());
+        return true;
+      case "reset":
+        stats.reset();
+        return true;
+      case "csv":
+        export(path, stats.toCsv());
+        return true;
+      case "json":
+        export(path, stats.toJson());
+        return true;
+      default:
+        throw new ExException(MessageHelper.message(Msg.e_invarg, arg));
+    }
+  }
+
+  private static void export(@NotNull String path, @NotNull String text) throws ExException {
+    if (path.isEmpty()) {
+      throw new ExException(MessageHelper.message(Msg.e_argreq));
+    }
+    final File file = new File(FileUtil.expandUserHome(path));
+    try {
+      Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+    catch (IOException e) {
+      throw new ExException(e.getMessage());
+    }
+  }
+
+  @NotNull
+  private static String formatRow(@NotNull KeystrokeStats.Row row) {
+    return String.format("%-32s %-10s %8d %10s %10s %10s", row.getName(),
+                         row.getMode() != null ? row.getMode().name().toLowerCase() : "",
+                         row.getCount(), formatNanos(row.getP50()), formatNanos(row.getP99()),
+                         formatNanos(row.getMax()));
+  }
+
+  @NotNull
+  private static String formatNanos(long nanos) {
+    if (nanos < 1000000) {
+      return String.format("%.1fus", nanos / 1000.0);
+    }
+    return String.format("%.2fms", nanos / 1000000.0);
+  }
+}
@@ -19,13 +19,15 @@
 package com.maddyhome.idea.vim.ex.handler;
 
 import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.editor.Editor;
 import com.maddyhome.idea.vim.VimPlugin;
-import com.maddyhome.idea.vim.ex.CommandHandler;
-import com.maddyhome.idea.vim.ex.CommandName;
-import com.maddyhome.idea.vim.ex.ExCommand;
+import com.maddyhome.idea.vim.common.TextRange;
+import com.maddyhome.idea.vim.ex.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.IOException;
+
 /**
  *
  */
@@ -33,11 +35,30 @@ public class WriteHandler extends CommandHandler {
   public WriteHandler() {
     super(new CommandName[]{
       new CommandName("w", "rite")
-    }, RANGE_OPTIONAL | ARGUMENT_OPTIONAL);
+    }, RANGE_OPTIONAL | ARGUMENT_OPTIONAL | SELF_SYNCHRONIZED);
   }
 
-  public boolean execute(@NotNull Editor editor, @NotNull DataContext context, @NotNull ExCommand cmd) {
-    VimPlugin.getFile().saveFile(editor);
+  public boolean execute(@NotNull Editor editor, @NotNull DataContext context,
+                         @NotNull ExCommand cmd) throws ExException {
+    final String arg = cmd.getArgument();
+    if (arg.startsWith("!") && arg.substring(1).trim().length() > 0) {
+      // Pipe the lines to an external command instead of saving them
+      final TextRange range = cmd.getRanges().size() == 0
+                              ? new TextRange(0, editor.getDocument().getTextLength())
+                              : cmd.getTextRange(editor, context, false);
+      final CharSequence input = editor.getDocument().getImmutableCharSequence()
+        .subSequence(range.getStartOffset(), range.getEndOffset());
+      try {
+        final String output = VimPlugin.getProcess().executeCommand(editor.getProject(), arg.substring(1).trim(), input);
+        ExOutputModel.getInstance(editor).output(output);
+      }
+      catch (IOException e) {
+        throw new ExException(e.getMessage());
+      }
+      return true;
+    }
+
+    ApplicationManager.getApplication().runWriteAction(() -> VimPlugin.getFile().saveFile(editor));
 
     return true;
   }
@@ -47,12 +47,12 @@ import com.maddyhome.idea.vim.EventFacade;
 import com.maddyhome.idea.vim.KeyHandler;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.command.*;
+import com.maddyhome.idea.vim.common.Mark;
 import com.maddyhome.idea.vim.common.Register;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.ex.LineRange;
 import com.maddyhome.idea.vim.handler.CaretOrder;
 import com.maddyhome.idea.vim.helper.*;
-import com.maddyhome.idea.vim.option.BoundListOption;
 import com.maddyhome.idea.vim.option.Options;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -1189,6 +1189,8 @@ public class ChangeGroup {
     final LogicalPosition lp = editor.offsetToLogicalPosition(
       VimPlugin.getMotion().moveCaretToLineStartSkipLeading(editor, caret));
 
+    // The changed line is deleted and inserted again, but its marks are kept like in Vim where it's never deleted
+    final List<Mark> marks = VimPlugin.getMark().getLineMarks(editor, pos.line);
     boolean res = deleteLine(editor, caret, count);
     if (res) {
       if (insertBelow) {
@@ -1197,6 +1199,7 @@ public class ChangeGroup {
       else {
         insertNewLineAbove(editor, caret, lp.column);
       }
+      VimPlugin.getMark().moveMarks(editor, marks, caret.getLogicalPosition().line);
     }
 
     return res;
@@ -1805,10 +1808,10 @@ public class ChangeGroup {
   }
 
   public boolean changeNumber(@NotNull final Editor editor, @NotNull Caret caret, final int count) {
-    final BoundListOption nf = (BoundListOption)Options.getInstance().getOption("nrformats");
-    final boolean alpha = nf.contains("alpha");
-    final boolean hex = nf.contains("hex");
-    final boolean octal = nf.contains("octal");
+    final List<String> nf = Options.getInstance().nrformats.values();
+    final boolean alpha = nf != null && nf.contains("alpha");
+    final boolean hex = nf != null && nf.contains("hex");
+    final boolean octal = nf != null && nf.contains("octal");
 
     final TextRange range = SearchHelper.findNumberUnderCursor(editor, caret, alpha, hex, octal);
     if (range == null) {
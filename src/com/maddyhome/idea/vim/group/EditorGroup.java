@@ -75,8 +75,8 @@ public class EditorGroup {
         }
       }
     };
-    options.getOption(Options.NUMBER).addOptionChangeListener(numbersChangeListener);
-    options.getOption(Options.RELATIVE_NUMBER).addOptionChangeListener(numbersChangeListener);
+    options.number.addOptionChangeListener(numbersChangeListener);
+    options.relativenumber.addOptionChangeListener(numbersChangeListener);
 
     EventFacade.getInstance().addEditorFactoryListener(new EditorFactoryAdapter() {
       @Override
@@ -164,8 +164,8 @@ public class EditorGroup {
     }
 
     final Options options = Options.getInstance();
-    final boolean relativeLineNumber = options.isSet(Options.RELATIVE_NUMBER);
-    final boolean lineNumber = options.isSet(Options.NUMBER);
+    final boolean relativeLineNumber = options.relativenumber.getValue();
+    final boolean lineNumber = options.number.getValue();
 
     final EditorSettings settings = editor.getSettings();
     final boolean showEditorLineNumbers = (EditorData.isLineNumbersShown(editor) || lineNumber) && !relativeLineNumber;
@@ -247,8 +247,8 @@ public class EditorGroup {
     public String getLineText(int line, @NotNull Editor editor) {
       if (VimPlugin.isEnabled() && EditorData.isFileEditor(editor)) {
         final Options options = Options.getInstance();
-        final boolean relativeLineNumber = options.isSet(Options.RELATIVE_NUMBER);
-        final boolean lineNumber = options.isSet(Options.NUMBER);
+        final boolean relativeLineNumber = options.relativenumber.getValue();
+        final boolean lineNumber = options.number.getValue();
         if (relativeLineNumber && lineNumber && isCaretLine(line, editor)) {
           return lineNumberToString(getLineNumber(line), editor);
         }
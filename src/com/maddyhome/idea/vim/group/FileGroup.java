@@ -20,6 +20,8 @@ package com.maddyhome.idea.vim.group;
 
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.actionSystem.PlatformDataKeys;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
@@ -30,9 +32,14 @@ import com.intellij.openapi.fileEditor.impl.EditorTabbedContainer;
 import com.intellij.openapi.fileEditor.impl.EditorWindow;
 import com.intellij.openapi.fileTypes.FileType;
 import com.intellij.openapi.fileTypes.FileTypeManager;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.roots.ProjectRootManager;
 import com.intellij.openapi.util.Ref;
+import com.intellij.openapi.util.ThrowableComputable;
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.CharsetToolkit;
 import com.intellij.openapi.vfs.LocalFileSystem;
 import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
@@ -43,6 +50,8 @@ import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.helper.EditorData;
 import com.maddyhome.idea.vim.helper.EditorHelper;
+import com.maddyhome.idea.vim.helper.MessageHelper;
+import com.maddyhome.idea.vim.helper.Msg;
 import com.maddyhome.idea.vim.helper.SearchHelper;
 import com.maddyhome.idea.vim.helper.StringHelper;
 import org.jetbrains.annotations.NotNull;
@@ -50,6 +59,12 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 
 public class FileGroup {
@@ -200,6 +215,63 @@ public class FileGroup {
     FileDocumentManager.getInstance().saveAllDocuments();
   }
 
+  /**
+   * Reads the contents of a file for insertion into the editor.
+   *
+   * The file is decoded with the charset of the editor's own file, so the text matches the target document. An empty
+   * filename reads the editor's own file. Large files are read under a cancellable progress indicator.
+   *
+   * @param editor   The editor the text will be inserted into
+   * @param filename The name of the file to read
+   * @return The file contents with normalized line separators or null if the file can't be found
+   * @throws IOException if the file can't be read
+   */
+  @Nullable
+  public String readFile(@NotNull Editor editor, @NotNull String filename) throws IOException {
+    final Project project = editor.getProject();
+    final VirtualFile target = EditorData.getVirtualFile(editor);
+    final File file;
+    if (filename.length() == 0) {
+      file = target != null ? VfsUtilCore.virtualToIoFile(target) : null;
+    }
+    else {
+      final VirtualFile found = project != null ? findFile(filename, project) : null;
+      file = found != null ? VfsUtilCore.virtualToIoFile(found) : new File(filename);
+    }
+    if (file == null || !file.isFile()) {
+      return null;
+    }
+
+    final Charset charset = target != null ? target.getCharset() : CharsetToolkit.getDefaultSystemCharset();
+    final ThrowableComputable<String, IOException> task = () -> readFile(file.toPath(), charset);
+    final Application application = ApplicationManager.getApplication();
+    if (application.isDispatchThread() && !application.isUnitTestMode() && file.length() > READ_PROGRESS_THRESHOLD) {
+      try {
+        return ProgressManager.getInstance().runProcessWithProgressSynchronously(task, "Reading " + file.getName(),
+                                                                                 true, project);
+      }
+      catch (ProcessCanceledException e) {
+        throw new IOException(MessageHelper.message(Msg.e_interr));
+      }
+    }
+    return task.compute();
+  }
+
+  @NotNull
+  private static String readFile(@NotNull Path path, @NotNull Charset charset) throws IOException {
+    final long size = Files.size(path);
+    final StringBuilder builder = new StringBuilder((int)Math.min(size, Integer.MAX_VALUE - 8));
+    try (Reader reader = new InputStreamReader(Files.newInputStream(path), charset)) {
+      final char[] buf = new char[8192];
+      int cnt;
+      while ((cnt = reader.read(buf)) != -1) {
+        ProgressManager.checkCanceled();
+        builder.append(buf, 0, cnt);
+      }
+    }
+    return StringUtil.convertLineSeparators(builder.toString());
+  }
+
   /**
    * Selects then next or previous editor.
    */
@@ -437,6 +509,9 @@ public class FileGroup {
     }
   }
 
+  private static final long READ_PROGRESS_THRESHOLD = 1024 * 1024;
+
   @NotNull private static final HashMap<FileEditorManager, VirtualFile> lastSelections = new HashMap<>();
+
   @NotNull private static final Logger logger = Logger.getInstance(FileGroup.class.getName());
 }
@@ -20,15 +20,13 @@ package com.maddyhome.idea.vim.group;
 
 import com.intellij.openapi.diagnostic.Logger;
 import com.maddyhome.idea.vim.helper.StringHelper;
-import com.maddyhome.idea.vim.option.NumberOption;
+import com.maddyhome.idea.vim.helper.VimInfo;
 import com.maddyhome.idea.vim.option.Options;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 public class HistoryGroup {
   public static final String SEARCH = "search";
@@ -42,7 +40,8 @@ public class HistoryGroup {
     }
 
     HistoryBlock block = blocks(key);
-    block.addEntry(text);
+    block.addEntry(text, getMaxLength());
+    modificationCount++;
   }
 
   @NotNull
@@ -87,42 +86,80 @@ public class HistoryGroup {
     return res;
   }
 
+  /**
+   * Finds the closest history entry starting with the given prefix.
+   *
+   * @param key    The history to search
+   * @param prefix The text the entry has to start with
+   * @param number The number of the entry to start from
+   * @param isUp   Search older entries if true, newer entries otherwise
+   * @return The found entry or null if there is no matching entry in that direction
+   */
+  @Nullable
+  public HistoryEntry findEntry(String key, @NotNull String prefix, int number, boolean isUp) {
+    return blocks(key).findEntry(prefix, number, isUp);
+  }
+
   private HistoryBlock blocks(String key) {
     HistoryBlock block = histories.get(key);
     if (block == null) {
       block = new HistoryBlock();
       histories.put(key, block);
     }
+    else {
+      // The 'history' option may have been lowered since the last access
+      block.trim(getMaxLength());
+    }
 
     return block;
   }
 
+  private static int getMaxLength() {
+    return Options.getInstance().history.value();
+  }
+
+  /**
+   * Gets a counter that is increased whenever an entry is added, so the saved data only has to be rebuilt then
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   public void saveData(@NotNull Element element) {
     logger.debug("saveData");
     Element hist = new Element("history");
 
-    saveData(hist, SEARCH);
-    saveData(hist, COMMAND);
-    saveData(hist, EXPRESSION);
-    saveData(hist, INPUT);
+    final int maxLength = getMaxLength();
+    saveData(hist, SEARCH, VimInfo.getMaxHistory('/', maxLength));
+    saveData(hist, COMMAND, VimInfo.getMaxHistory(':', maxLength));
+    saveData(hist, EXPRESSION, VimInfo.getMaxHistory(':', maxLength));
+    saveData(hist, INPUT, VimInfo.getMaxHistory('@', maxLength));
 
     element.addContent(hist);
   }
 
-  private void saveData(@NotNull Element element, String key) {
+  private void saveData(@NotNull Element element, String key, int maxEntries) {
     final HistoryBlock block = histories.get(key);
     if (block == null) {
       return;
     }
 
-    final Element root = new Element("history-" + key);
-
-    for (HistoryEntry entry : block.getEntries()) {
-      final Element entryElement = new Element("entry");
-      StringHelper.setSafeXmlText(entryElement, entry.getEntry());
-      root.addContent(entryElement);
+    // All the entries are stored as escaped lines of a single element, the oldest ones are dropped first
+    block.trim(getMaxLength());
+    final List<HistoryEntry> entries = block.getEntries();
+    final StringBuilder text = new StringBuilder();
+    boolean first = true;
+    for (HistoryEntry entry : entries.subList(Math.max(entries.size() - Math.max(maxEntries, 0), 0), entries.size())) {
+      if (!first) {
+        text.append('\n');
+      }
+      escapeEntry(entry.getEntry(), text);
+      first = false;
     }
 
+    final Element root = new Element("history-" + key);
+    root.setAttribute("format", COMPACT_FORMAT);
+    StringHelper.setSafeXmlText(root, text.toString());
     element.addContent(root);
   }
 
@@ -149,47 +186,200 @@ public class HistoryGroup {
     histories.put(key, block);
 
     final Element root = element.getChild("history-" + key);
-    if (root != null) {
+    if (root == null) {
+      return;
+    }
+
+    if (COMPACT_FORMAT.equals(root.getAttributeValue("format"))) {
+      final String text = StringHelper.getSafeXmlText(root);
+      if (text != null && text.length() > 0) {
+        for (String line : text.split("\n", -1)) {
+          block.addEntry(unescapeEntry(line), getMaxLength());
+        }
+      }
+    }
+    else {
+      // Older versions stored one element per entry
       //noinspection unchecked
       List<Element> items = root.getChildren("entry");
       for (Element item : items) {
         final String text = StringHelper.getSafeXmlText(item);
         if (text != null) {
-          block.addEntry(text);
+          block.addEntry(text, getMaxLength());
         }
       }
     }
   }
 
-  private static int maxLength() {
-    NumberOption opt = (NumberOption)Options.getInstance().getOption("history");
+  private static void escapeEntry(@NotNull String entry, @NotNull StringBuilder builder) {
+    for (int i = 0; i < entry.length(); i++) {
+      final char c = entry.charAt(i);
+      if (c == '\\') {
+        builder.append("\\\\");
+      }
+      else if (c == '\n') {
+        builder.append("\\n");
+      }
+      else {
+        builder.append(c);
+      }
+    }
+  }
 
-    return opt.value();
+  @NotNull
+  private static String unescapeEntry(@NotNull String line) {
+    if (line.indexOf('\\') < 0) {
+      return line;
+    }
+    final StringBuilder builder = new StringBuilder(line.length());
+    for (int i = 0; i < line.length(); i++) {
+      final char c = line.charAt(i);
+      if (c == '\\' && i + 1 < line.length()) {
+        i++;
+        builder.append(line.charAt(i) == 'n' ? '\n' : line.charAt(i));
+      }
+      else {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
   }
 
+  /**
+   * History entries of one kind, kept in insertion order in a ring buffer.
+   *
+   * Removing a duplicate leaves an empty slot behind, which is reclaimed when the buffer is compacted. Entries are
+   * also indexed by text for duplicate removal and in sorted order for prefix searches.
+   */
   private static class HistoryBlock {
-    public void addEntry(@NotNull String text) {
-      for (int i = 0; i < entries.size(); i++) {
-        HistoryEntry entry = entries.get(i);
-        if (text.equals(entry.getEntry())) {
-          entries.remove(i);
-          break;
-        }
+    public void addEntry(@NotNull String text, int maxLength) {
+      final Integer slot = positions.remove(text);
+      if (slot != null) {
+        removeSlot(slot);
+      }
+
+      if (used == slots.length) {
+        relocate(size * 2 <= used ? slots.length : slots.length * 2);
       }
 
-      entries.add(new HistoryEntry(++counter, text));
+      final HistoryEntry entry = new HistoryEntry(++counter, text);
+      final int tail = (head + used) % slots.length;
+      slots[tail] = entry;
+      numbers[tail] = entry.getNumber();
+      positions.put(text, tail);
+      sorted.put(text, entry);
+      used++;
+      size++;
 
-      if (entries.size() > maxLength()) {
-        entries.remove(0);
+      trim(maxLength);
+    }
+
+    public void trim(int maxLength) {
+      while (size > maxLength) {
+        final HistoryEntry oldest = slots[head];
+        positions.remove(oldest.getEntry());
+        removeSlot(head);
       }
     }
 
     @NotNull
     public List<HistoryEntry> getEntries() {
+      final List<HistoryEntry> entries = new ArrayList<>(size);
+      for (int i = 0; i < used; i++) {
+        final HistoryEntry entry = slots[(head + i) % slots.length];
+        if (entry != null) {
+          entries.add(entry);
+        }
+      }
       return entries;
     }
 
-    @NotNull private final List<HistoryEntry> entries = new ArrayList<>();
+    @Nullable
+    public HistoryEntry findEntry(@NotNull String prefix, int number, boolean isUp) {
+      // All the entries starting with the prefix form a contiguous range of the sorted index. It is walked together
+      // with the buffer, starting next to the given entry, so the search stops after as many steps as the shorter of
+      // the two takes: a short prefix matches a close entry, a long one has only a few entries to check.
+      final Iterator<HistoryEntry> matches =
+        sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values().iterator();
+      final int step = isUp ? -1 : 1;
+      HistoryEntry res = null;
+      for (int i = isUp ? indexAfter((long)number - 1) - 1 : indexAfter(number); ; i += step) {
+        if (i < 0 || i >= used) {
+          return null;
+        }
+        final HistoryEntry entry = slots[(head + i) % slots.length];
+        if (entry != null && entry.getEntry().startsWith(prefix)) {
+          return entry;
+        }
+
+        if (!matches.hasNext()) {
+          return res;
+        }
+        final HistoryEntry match = matches.next();
+        final int n = match.getNumber();
+        if (isUp ? n < number && (res == null || n > res.getNumber())
+                 : n > number && (res == null || n < res.getNumber())) {
+          res = match;
+        }
+      }
+    }
+
+    /**
+     * Gets the position in the buffer of the first entry with a number greater than the given one
+     */
+    private int indexAfter(long number) {
+      // The numbers of removed entries are kept, so the numbers of all the slots in use are in ascending order
+      int low = 0;
+      int high = used;
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (numbers[(head + mid) % slots.length] > number) {
+          high = mid;
+        }
+        else {
+          low = mid + 1;
+        }
+      }
+      return low;
+    }
+
+    private void removeSlot(int slot) {
+      sorted.remove(slots[slot].getEntry());
+      slots[slot] = null;
+      size--;
+      // Keep the head on a live entry so the oldest entry can always be found directly
+      while (used > 0 && slots[head] == null) {
+        head = (head + 1) % slots.length;
+        used--;
+      }
+    }
+
+    private void relocate(int capacity) {
+      final HistoryEntry[] old = slots;
+      slots = new HistoryEntry[capacity];
+      numbers = new int[capacity];
+      positions.clear();
+      int pos = 0;
+      for (int i = 0; i < used; i++) {
+        final HistoryEntry entry = old[(head + i) % old.length];
+        if (entry != null) {
+          slots[pos] = entry;
+          numbers[pos] = entry.getNumber();
+          positions.put(entry.getEntry(), pos);
+          pos++;
+        }
+      }
+      head = 0;
+      used = pos;
+    }
+
+    @NotNull private HistoryEntry[] slots = new HistoryEntry[16];
+    @NotNull private int[] numbers = new int[16];
+    private int head;
+    private int used;
+    private int size;
+    @NotNull private final Map<String, Integer> positions = new HashMap<>();
+    @NotNull private final TreeMap<String, HistoryEntry> sorted = new TreeMap<>();
     private int counter;
   }
 
@@ -213,6 +403,9 @@ public class HistoryGroup {
   }
 
   @NotNull private final Map<String, HistoryBlock> histories = new HashMap<>();
+  private int modificationCount;
+
+  private static final String COMPACT_FORMAT = "compact";
 
   private static final Logger logger = Logger.getInstance(HistoryGroup.class.getName());
 }
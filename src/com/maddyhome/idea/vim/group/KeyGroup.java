@@ -33,6 +33,7 @@ import com.maddyhome.idea.vim.action.VimCommandAction;
 import com.maddyhome.idea.vim.action.VimShortcutKeyAction;
 import com.maddyhome.idea.vim.command.Argument;
 import com.maddyhome.idea.vim.command.Command;
+import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.command.MappingMode;
 import com.maddyhome.idea.vim.ex.ExOutputModel;
 import com.maddyhome.idea.vim.extension.VimExtensionHandler;
@@ -66,6 +67,9 @@ public class KeyGroup {
   @NotNull private final HashMap<MappingMode, RootNode> keyRoots = new HashMap<>();
   @NotNull private final Map<MappingMode, KeyMapping> keyMappings = new HashMap<>();
   @Nullable private OperatorFunction operatorFunction = null;
+  @NotNull private final Map<KeyStroke, List<AnAction>> keymapConflicts = new HashMap<>();
+  @Nullable private Keymap conflictsKeymap = null;
+  @NotNull private final Keymap.Listener keymapListener = actionId -> keymapConflicts.clear();
 
   public void registerRequiredShortcutKeys(@NotNull Editor editor) {
     final Set<KeyStroke> requiredKeys = VimPlugin.getKey().requiredShortcutKeys;
@@ -79,30 +83,32 @@ public class KeyGroup {
 
   public boolean showKeyMappings(@NotNull Set<MappingMode> modes, @NotNull Editor editor) {
     final List<MappingInfo> rows = getKeyMappingRows(modes);
+    ExOutputModel.getInstance(editor).output(rows.stream().map(KeyGroup::formatMappingRow).iterator());
+    return true;
+  }
+
+  @NotNull
+  private static String formatMappingRow(@NotNull MappingInfo row) {
     final StringBuilder builder = new StringBuilder();
-    for (MappingInfo row : rows) {
-      builder.append(leftJustify(getModesStringCode(row.getMappingModes()), 2, ' '));
-      builder.append(" ");
-      builder.append(leftJustify(toKeyNotation(row.getFromKeys()), 11, ' '));
-      builder.append(" ");
-      builder.append(row.isRecursive() ? " " : "*");
-      builder.append(" ");
-      final List<KeyStroke> toKeys = row.getToKeys();
-      final VimExtensionHandler extensionHandler = row.getExtensionHandler();
-      if (toKeys != null) {
-        builder.append(toKeyNotation(toKeys));
-      }
-      else if (extensionHandler != null) {
-        builder.append("call ");
-        builder.append(extensionHandler.getClass().getCanonicalName());
-      }
-      else {
-        builder.append("<Unknown>");
-      }
-      builder.append("\n");
+    builder.append(leftJustify(getModesStringCode(row.getMappingModes()), 2, ' '));
+    builder.append(" ");
+    builder.append(leftJustify(toKeyNotation(row.getFromKeys()), 11, ' '));
+    builder.append(" ");
+    builder.append(row.isRecursive() ? " " : "*");
+    builder.append(" ");
+    final List<KeyStroke> toKeys = row.getToKeys();
+    final VimExtensionHandler extensionHandler = row.getExtensionHandler();
+    if (toKeys != null) {
+      builder.append(toKeyNotation(toKeys));
     }
-    ExOutputModel.getInstance(editor).output(builder.toString());
-    return true;
+    else if (extensionHandler != null) {
+      builder.append("call ");
+      builder.append(extensionHandler.getClass().getCanonicalName());
+    }
+    else {
+      builder.append("<Unknown>");
+    }
+    return builder.toString();
   }
 
   public void putKeyMapping(@NotNull Set<MappingMode> modes, @NotNull List<KeyStroke> fromKeys,
@@ -112,6 +118,7 @@ public class KeyGroup {
       final KeyMapping mapping = getKeyMapping(mode);
       mapping.put(EnumSet.of(mode), fromKeys, toKeys, extensionHandler, recursive);
     }
+    resetMappingNodes();
     final int oldSize = requiredShortcutKeys.size();
     for (KeyStroke key : fromKeys) {
       if (key.getKeyChar() == KeyEvent.CHAR_UNDEFINED) {
@@ -177,10 +184,27 @@ public class KeyGroup {
     }
   }
 
+  /**
+   * Returns the actions of the active keymap bound to the keystroke.
+   *
+   * The conflicts are remembered per keystroke until the active keymap is switched or its shortcuts are changed.
+   */
   @NotNull
   public List<AnAction> getKeymapConflicts(@NotNull KeyStroke keyStroke) {
     final KeymapManagerEx keymapManager = KeymapManagerEx.getInstanceEx();
     final Keymap keymap = keymapManager.getActiveKeymap();
+    if (keymap != conflictsKeymap) {
+      if (conflictsKeymap != null) {
+        conflictsKeymap.removeShortcutChangeListener(keymapListener);
+      }
+      keymap.addShortcutChangeListener(keymapListener);
+      conflictsKeymap = keymap;
+      keymapConflicts.clear();
+    }
+    final List<AnAction> cached = keymapConflicts.get(keyStroke);
+    if (cached != null) {
+      return cached;
+    }
     final KeyboardShortcut shortcut = new KeyboardShortcut(keyStroke, null);
     final Map<String, ? extends List<KeyboardShortcut>> conflicts = keymap.getConflicts("", shortcut);
     final List<AnAction> actions = new ArrayList<>();
@@ -190,7 +214,9 @@ public class KeyGroup {
         actions.add(action);
       }
     }
-    return actions;
+    final List<AnAction> result = Collections.unmodifiableList(actions);
+    keymapConflicts.put(keyStroke, result);
+    return result;
   }
 
   @NotNull
@@ -227,6 +253,13 @@ public class KeyGroup {
 
   public void resetKeyMappings() {
     keyMappings.clear();
+    resetMappingNodes();
+  }
+
+  private static void resetMappingNodes() {
+    for (Editor editor : EditorFactory.getInstance().getAllEditors()) {
+      CommandState.getInstance(editor).resetMappingNode();
+    }
   }
 
   /**
@@ -246,6 +279,15 @@ public class KeyGroup {
     return res;
   }
 
+  /**
+   * Builds the compact lookup tables of the key/action trees once all the actions are registered
+   */
+  public void freezeKeyRoots() {
+    for (RootNode root : keyRoots.values()) {
+      root.freeze();
+    }
+  }
+
   public void registerCommandAction(@NotNull VimCommandAction commandAction, @NotNull String actionId) {
     final List<Shortcut> shortcuts = new ArrayList<>();
     for (List<KeyStroke> keyStrokes : commandAction.getKeyStrokesSet()) {
@@ -20,12 +20,15 @@ package com.maddyhome.idea.vim.group;
 
 import com.intellij.openapi.actionSystem.DataContext;
 import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ModalityState;
 import com.intellij.openapi.command.CommandProcessor;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.ScrollingModel;
 import com.intellij.openapi.project.Project;
 import com.maddyhome.idea.vim.KeyHandler;
 import com.maddyhome.idea.vim.VimPlugin;
+import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.common.Register;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -62,7 +65,7 @@ public class MacroGroup {
     }
 
     List<KeyStroke> keys = register.getKeys();
-    playbackKeys(editor, context, project, keys, 0, 0, count);
+    playbackMacro(editor, context, project, keys, count);
 
     lastRegister = reg;
 
@@ -82,6 +85,68 @@ public class MacroGroup {
     return lastRegister != 0 && playbackRegister(editor, context, project, lastRegister, count);
   }
 
+  /**
+   * Plays the keys of a macro synchronously as a single command and undo group.
+   *
+   * The playback is posted once to the event queue so the command that requested it finishes first. As soon as a key
+   * needs the event queue between keystrokes, e.g. it starts an ex entry, moves the focus or opens a modal dialog, the
+   * rest of the macro is handed over to {@link #playbackKeys}. The playback stops at the first key that fails.
+   *
+   * @param editor  The editor to play the macro in
+   * @param context The data context
+   * @param project The project
+   * @param keys    The list of keys to playback
+   * @param total   The number of times to execute the macro
+   */
+  private void playbackMacro(@NotNull final Editor editor, @NotNull final DataContext context,
+                             @Nullable final Project project, @NotNull final List<KeyStroke> keys, final int total) {
+    if (keys.isEmpty() || total <= 0) {
+      return;
+    }
+    final Runnable run = () -> {
+      final ModalityState modality = ModalityState.current();
+      final boolean hadFocus = editor.getContentComponent().hasFocus();
+      final KeyHandler keyHandler = KeyHandler.getInstance();
+      final ScrollingModel scrollingModel = editor.getScrollingModel();
+      scrollingModel.disableAnimation();
+      try {
+        for (int cnt = 0; cnt < total; cnt++) {
+          for (int pos = 0; pos < keys.size(); pos++) {
+            if (editor.isDisposed()) {
+              return;
+            }
+            keyHandler.handleKey(editor, keys.get(pos), context);
+            if (VimPlugin.isError()) {
+              logger.debug("aborted on error");
+              return;
+            }
+            if (needsEventQueue(editor, modality, hadFocus)) {
+              if (pos < keys.size() - 1) {
+                playbackKeys(editor, context, project, keys, pos + 1, cnt, total);
+              }
+              else {
+                playbackKeys(editor, context, project, keys, 0, cnt + 1, total);
+              }
+              return;
+            }
+          }
+        }
+      }
+      finally {
+        scrollingModel.enableAnimation();
+      }
+    };
+
+    ApplicationManager.getApplication().invokeLater(
+        () -> CommandProcessor.getInstance().executeCommand(project, run, "Vim Macro Playback", keys));
+  }
+
+  private static boolean needsEventQueue(@NotNull Editor editor, @NotNull ModalityState modality, boolean hadFocus) {
+    return CommandState.getInstance(editor).getMode() == CommandState.Mode.EX_ENTRY ||
+           ModalityState.current() != modality ||
+           (hadFocus && !editor.getContentComponent().hasFocus());
+  }
+
   /**
    * This puts a single keystroke at the end of the event queue for playback
    *
@@ -118,6 +183,10 @@ public class MacroGroup {
       }
       // Handle one keystroke then queue up the next key
       KeyHandler.getInstance().handleKey(editor, keys.get(pos), context);
+      if (VimPlugin.isError()) {
+        logger.debug("aborted on error");
+        return;
+      }
       if (pos < keys.size() - 1) {
         playbackKeys(editor, context, project, keys, pos + 1, cnt, total);
       }
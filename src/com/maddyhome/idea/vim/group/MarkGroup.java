@@ -24,6 +24,7 @@ import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.EditorFactory;
 import com.intellij.openapi.editor.LogicalPosition;
+import com.intellij.openapi.editor.RangeMarker;
 import com.intellij.openapi.editor.event.*;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.util.text.StringUtil;
@@ -31,14 +32,14 @@ import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.openapi.vfs.VirtualFileManager;
 import com.maddyhome.idea.vim.EventFacade;
 import com.maddyhome.idea.vim.VimPlugin;
-import com.maddyhome.idea.vim.command.Command;
-import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.common.Jump;
+import com.maddyhome.idea.vim.common.LocationList;
 import com.maddyhome.idea.vim.common.Mark;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.helper.EditorData;
 import com.maddyhome.idea.vim.helper.EditorHelper;
 import com.maddyhome.idea.vim.helper.SearchHelper;
+import com.maddyhome.idea.vim.helper.VimInfo;
 import org.jdom.Element;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -60,10 +61,28 @@ public class MarkGroup {
    */
   public MarkGroup() {
     EventFacade.getInstance().addEditorFactoryListener(new EditorFactoryAdapter() {
+      public void editorCreated(@NotNull EditorFactoryEvent event) {
+        getFileMarks(event.getEditor().getDocument());
+        // The opened file is now the most recently used one
+        modificationCount++;
+      }
+
       public void editorReleased(@NotNull EditorFactoryEvent event) {
         // Save off the last caret position of the file before it is closed
         Editor editor = event.getEditor();
         setMark(editor, '"', editor.getCaretModel().getOffset());
+        // Keep just the packed lines of the marks once the file isn't open anymore
+        final Document doc = editor.getDocument();
+        for (Editor other : EditorFactory.getInstance().getEditors(doc)) {
+          if (other != editor) {
+            return;
+          }
+        }
+        final VirtualFile vf = FileDocumentManager.getInstance().getFile(doc);
+        final FileMarks marks = vf != null ? fileMarks.get(vf.getPath()) : null;
+        if (marks != null) {
+          marks.compact();
+        }
       }
     }, ApplicationManager.getApplication());
   }
@@ -203,11 +222,18 @@ public class MarkGroup {
     Mark mark = new Mark(ch, lp.line, lp.column, vf.getPath(), extractProtocol(vf));
     // File specific marks get added to the file
     if (FILE_MARKS.indexOf(ch) >= 0) {
-      HashMap<Character, Mark> fmarks = getFileMarks(editor.getDocument());
+      FileMarks fmarks = getFileMarks(editor.getDocument());
       if (fmarks == null) {
         return false;
       }
-      fmarks.put(ch, mark);
+      mark.setMarker(createLineMarker(editor.getDocument(), lp.line));
+      Mark oldMark = fmarks.put(ch, mark);
+      if (oldMark != null) {
+        oldMark.clear();
+      }
+      if (ch == MARK_CHANGE_POS) {
+        addChange(fmarks, new Jump(lp.line, lp.column, vf.getPath()));
+      }
     }
     // Global marks get set to both the file and the global list of marks
     else if (GLOBAL_MARKS.indexOf(ch) >= 0) {
@@ -215,16 +241,64 @@ public class MarkGroup {
       if (fmarks == null) {
         return false;
       }
+      mark.setMarker(createLineMarker(editor.getDocument(), lp.line));
       fmarks.put(ch, mark);
       Mark oldMark = globalMarks.put(ch, mark);
       if (oldMark != null) {
         oldMark.clear();
       }
     }
+    modificationCount++;
 
     return true;
   }
 
+  /**
+   * Gets the marks set on the line of the editor
+   *
+   * @param editor The editor to get the marks from
+   * @param line   The logical line
+   * @return The marks of the line
+   */
+  @NotNull
+  public List<Mark> getLineMarks(@NotNull Editor editor, int line) {
+    final List<Mark> res = new ArrayList<>();
+    final FileMarks marks = getFileMarks(editor.getDocument());
+    if (marks != null) {
+      for (Mark mark : marks.values()) {
+        if (!mark.isClear() && mark.getLogicalLine() == line) {
+          res.add(mark);
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Moves the marks to the line of the editor. This keeps the marks of a line that is deleted and then inserted again.
+   *
+   * @param editor The editor the marks are set in
+   * @param marks  The marks to move
+   * @param line   The logical line to move the marks to
+   */
+  public void moveMarks(@NotNull Editor editor, @NotNull List<Mark> marks, int line) {
+    for (Mark mark : marks) {
+      mark.setMarker(createLineMarker(editor.getDocument(), line));
+    }
+    modificationCount++;
+  }
+
+  /**
+   * Creates a marker covering the line without its line break, the marker is invalidated when the line is deleted
+   */
+  @NotNull
+  private static RangeMarker createLineMarker(@NotNull Document doc, int line) {
+    if (line >= doc.getLineCount()) {
+      return doc.createRangeMarker(doc.getTextLength(), doc.getTextLength());
+    }
+    return doc.createRangeMarker(doc.getLineStartOffset(line), doc.getLineEndOffset(line));
+  }
+
   private String extractProtocol(@NotNull VirtualFile vf) {
     return VirtualFileManager.extractProtocol(vf.getUrl());
   }
@@ -272,18 +346,8 @@ public class MarkGroup {
     }
 
     LogicalPosition lp = editor.offsetToLogicalPosition(offset);
-    Jump jump = new Jump(lp.line, lp.column, vf.getPath());
-    final String filename = jump.getFilename();
-
-    for (int i = 0; i < jumps.size(); i++) {
-      Jump j = jumps.get(i);
-      if (filename != null && filename.equals(j.getFilename()) && j.getLogicalLine() == jump.getLogicalLine()) {
-        jumps.remove(i);
-        break;
-      }
-    }
-
-    jumps.add(jump);
+    // An older jump on the same line is removed, the oldest jump is dropped when the list is full
+    jumps.add(new Jump(lp.line, lp.column, vf.getPath()));
 
     if (reset) {
       jumpSpot = -1;
@@ -291,29 +355,69 @@ public class MarkGroup {
     else {
       jumpSpot++;
     }
+    modificationCount++;
+  }
 
-    if (jumps.size() > SAVE_JUMP_COUNT) {
-      jumps.remove(0);
+  /**
+   * Adds the position of a change to the change list of the file. A change on the same line as the newest change
+   * replaces it.
+   */
+  private static void addChange(@NotNull FileMarks marks, @NotNull Jump change) {
+    final Jump last = marks.changes.getLast();
+    if (last != null && last.getLogicalLine() == change.getLogicalLine()) {
+      marks.changes.setLast(change);
+    }
+    else {
+      marks.changes.add(change);
     }
+    marks.changeIndex = marks.changes.size();
+    marks.saved = null;
   }
 
-  private void removeMark(char ch, @NotNull Mark mark) {
-    if (FILE_MARKS.indexOf(ch) >= 0) {
-      HashMap fmarks = getFileMarks(mark.getFilename());
-      fmarks.remove(ch);
+  /**
+   * Get the requested position from the change list of the editor's file.
+   *
+   * @param editor The editor to get the change for
+   * @param count  Positive for newer changes (g,), negative for older changes (g;)
+   * @return The change or null if out of range.
+   */
+  @Nullable
+  public Jump getChange(@NotNull Editor editor, int count) {
+    final FileMarks marks = getFileMarks(editor.getDocument());
+    if (marks == null) {
+      return null;
     }
-    else if (GLOBAL_MARKS.indexOf(ch) >= 0) {
-      globalMarks.remove(ch);
+    final int index = Math.min(marks.changeIndex, marks.changes.size()) + count;
+    if (index < 0 || index >= marks.changes.size()) {
+      return null;
     }
+    marks.changeIndex = index;
+    return marks.changes.get(index);
+  }
 
-    mark.clear();
+  /**
+   * Gets the change list of the editor's file
+   */
+  @NotNull
+  public List<Jump> getChanges(@NotNull Editor editor) {
+    final FileMarks marks = getFileMarks(editor.getDocument());
+    return marks != null ? marks.changes : Collections.emptyList();
+  }
+
+  /**
+   * Gets the index of the current position in the change list of the editor's file, the size of the list if the
+   * change list hasn't been used since the last change
+   */
+  public int getChangeIndex(@NotNull Editor editor) {
+    final FileMarks marks = getFileMarks(editor.getDocument());
+    return marks != null ? Math.min(marks.changeIndex, marks.changes.size()) : 0;
   }
 
   @NotNull
   public List<Mark> getMarks(@NotNull Editor editor) {
     HashSet<Mark> res = new HashSet<>();
 
-    final FileMarks<Character, Mark> marks = getFileMarks(editor.getDocument());
+    final FileMarks marks = getFileMarks(editor.getDocument());
     if (marks != null) {
       res.addAll(marks.values());
     }
@@ -343,36 +447,21 @@ public class MarkGroup {
    *         <code>Mark</code>s.
    */
   @Nullable
-  private FileMarks<Character, Mark> getFileMarks(@NotNull final Document doc) {
+  private FileMarks getFileMarks(@NotNull final Document doc) {
     VirtualFile vf = FileDocumentManager.getInstance().getFile(doc);
     if (vf == null) {
       return null;
     }
 
-    return getFileMarks(vf.getPath());
-  }
-
-  @Nullable
-  private HashMap<Character, Mark> getAllFileMarks(@NotNull final Document doc) {
-    VirtualFile vf = FileDocumentManager.getInstance().getFile(doc);
-    if (vf == null) {
-      return null;
-    }
-
-    HashMap<Character, Mark> res = new HashMap<>();
-    FileMarks<Character, Mark> fileMarks = getFileMarks(doc);
-    if (fileMarks != null) {
-      res.putAll(fileMarks);
-    }
-
-    for (Character ch : globalMarks.keySet()) {
-      Mark mark = globalMarks.get(ch);
-      if (vf.getPath().equals(mark.getFilename())) {
-        res.put(ch, mark);
+    final FileMarks marks = getFileMarks(vf.getPath());
+    // Marks read from the saved state or kept from a closed file follow the edits once the file is open again
+    marks.expand(vf.getPath());
+    for (Mark mark : marks.values()) {
+      if (!mark.isAttached() && !mark.isClear() && mark.getLogicalLine() < doc.getLineCount()) {
+        mark.setMarker(createLineMarker(doc, mark.getLogicalLine()));
       }
     }
-
-    return res;
+    return marks;
   }
 
   /**
@@ -382,16 +471,24 @@ public class MarkGroup {
    * @return The map of marks. The keys are <code>Character</code>s of the mark names, the values are
    *         <code>Mark</code>s.
    */
-  private FileMarks<Character, Mark> getFileMarks(String filename) {
-    FileMarks<Character, Mark> marks = fileMarks.get(filename);
+  private FileMarks getFileMarks(String filename) {
+    FileMarks marks = fileMarks.get(filename);
     if (marks == null) {
-      marks = new FileMarks<>();
+      marks = new FileMarks();
       fileMarks.put(filename, marks);
     }
 
     return marks;
   }
 
+  /**
+   * Gets a counter that is increased whenever the marks, jumps or changes are set or moved by an edit, so the saved
+   * data only has to be rebuilt then
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   public void saveData(@NotNull Element element) {
     Element marksElem = new Element("globalmarks");
     for (Mark mark : globalMarks.values()) {
@@ -412,52 +509,26 @@ public class MarkGroup {
 
     Element fileMarksElem = new Element("filemarks");
 
-    List<FileMarks<Character, Mark>> files = new ArrayList<>(fileMarks.values());
-    files.sort(Comparator.comparing(o -> o.timestamp));
-
-    if (files.size() > SAVE_MARK_COUNT) {
-      files = files.subList(files.size() - SAVE_MARK_COUNT, files.size());
-    }
-
-    for (String file : fileMarks.keySet()) {
-      FileMarks<Character, Mark> marks = fileMarks.get(file);
-      if (!files.contains(marks)) {
+    // The files are kept from the least to the most recently used one, only the most recent ones are saved
+    int skipped = fileMarks.size() - Math.max(VimInfo.getMaxMarkedFiles(), 0);
+    for (Map.Entry<String, FileMarks> entry : fileMarks.entrySet()) {
+      if (skipped-- > 0) {
         continue;
       }
-
-      if (marks.size() > 0) {
-        Element fileMarkElem = new Element("file");
-        fileMarkElem.setAttribute("name", file);
-        fileMarkElem.setAttribute("timestamp", Long.toString(marks.timestamp.getTime()));
-        for (Mark mark : marks.values()) {
-          if (!mark.isClear() && !Character.isUpperCase(mark.getKey()) &&
-              SAVE_FILE_MARKS.indexOf(mark.getKey()) >= 0) {
-            Element markElem = new Element("mark");
-            markElem.setAttribute("key", Character.toString(mark.getKey()));
-            markElem.setAttribute("line", Integer.toString(mark.getLogicalLine()));
-            markElem.setAttribute("column", Integer.toString(mark.getCol()));
-            fileMarkElem.addContent(markElem);
-          }
-        }
+      final Element fileMarkElem = entry.getValue().save(entry.getKey());
+      if (fileMarkElem != null) {
         fileMarksElem.addContent(fileMarkElem);
       }
     }
     element.addContent(fileMarksElem);
 
     Element jumpsElem = new Element("jumps");
-    for (Jump jump : jumps) {
-      if (!jump.isClear()) {
-        Element jumpElem = new Element("jump");
-        jumpElem.setAttribute("line", Integer.toString(jump.getLogicalLine()));
-        jumpElem.setAttribute("column", Integer.toString(jump.getCol()));
-        jumpElem.setAttribute("filename", StringUtil.notNullize(jump.getFilename()));
-        jumpsElem.addContent(jumpElem);
-        if (logger.isDebugEnabled()) {
-          logger.debug("saved jump = " + jump);
-        }
-      }
-    }
+    jumpsElem.setAttribute("format", COMPACT_FORMAT);
+    jumpsElem.setText(saveLocations(jumps, true));
     element.addContent(jumpsElem);
+    if (logger.isDebugEnabled()) {
+      logger.debug("saved jumps = " + jumps);
+    }
   }
 
   public void readData(@NotNull Element element) {
@@ -487,6 +558,9 @@ public class MarkGroup {
       logger.debug("globalMarks=" + globalMarks);
     }
 
+    // Files whose marks were used before the saved data was read stay the most recently used ones
+    final List<String> usedFiles = new ArrayList<>(fileMarks.keySet());
+
     Element fileMarksElem = element.getChild("filemarks");
     if (fileMarksElem != null) {
       List fileList = fileMarksElem.getChildren("file");
@@ -501,7 +575,8 @@ public class MarkGroup {
         catch (NumberFormatException e) {
           // ignore
         }
-        FileMarks<Character, Mark> fmarks = getFileMarks(filename);
+        FileMarks fmarks = getFileMarks(filename);
+        fmarks.expand(filename);
         List markList = fileElem.getChildren("mark");
         for (Object aMarkList : markList) {
           Element markElem = (Element)aMarkList;
@@ -513,17 +588,44 @@ public class MarkGroup {
 
           fmarks.put(mark.getKey(), mark);
         }
+        final Element changesElem = fileElem.getChild("changes");
+        if (changesElem != null) {
+          fmarks.changes.clear();
+          fmarks.changes.addAll(readLocations(changesElem.getText(), filename));
+          fmarks.changeIndex = fmarks.changes.size();
+        }
         fmarks.setTimestamp(timestamp);
       }
     }
 
+    // The marks of the open files follow their edits, the others are packed until the file is opened
+    final Set<String> openFiles = new HashSet<>();
+    for (Editor editor : EditorFactory.getInstance().getAllEditors()) {
+      final VirtualFile vf = FileDocumentManager.getInstance().getFile(editor.getDocument());
+      if (vf != null && openFiles.add(vf.getPath())) {
+        getFileMarks(editor.getDocument());
+      }
+    }
+    for (Map.Entry<String, FileMarks> entry : fileMarks.entrySet()) {
+      if (!openFiles.contains(entry.getKey())) {
+        entry.getValue().compact();
+      }
+    }
+    for (String file : usedFiles) {
+      fileMarks.get(file);
+    }
+
     if (logger.isDebugEnabled()) {
       logger.debug("fileMarks=" + fileMarks);
     }
 
     jumps.clear();
     Element jumpsElem = element.getChild("jumps");
-    if (jumpsElem != null) {
+    if (jumpsElem != null && COMPACT_FORMAT.equals(jumpsElem.getAttributeValue("format"))) {
+      jumps.addAll(readLocations(jumpsElem.getText(), null));
+    }
+    // Older versions stored one element per jump
+    else if (jumpsElem != null) {
       List jumpList = jumpsElem.getChildren("jump");
       for (Object aJumpList : jumpList) {
         Element jumpElem = (Element)aJumpList;
@@ -541,170 +643,231 @@ public class MarkGroup {
   }
 
   /**
-   * This updates all the marks for a file whenever text is deleted from the file. If the line that contains a mark
-   * is completely deleted then the mark is deleted too. If the deleted text is before the marked line, the mark is
-   * moved up by the number of deleted lines.
-   *
-   * @param editor      The modified editor
-   * @param marks       The editor's marks to update
-   * @param delStartOff The offset within the editor where the deletion occurred
-   * @param delLength   The length of the deleted text
+   * Stores the locations as lines of "line,column" followed by ",filename" if the filename is included
    */
-  public static void updateMarkFromDelete(@Nullable Editor editor, @Nullable HashMap<Character, Mark> marks, int delStartOff, int delLength) {
-    // Skip all this work if there are no marks
-    if (marks != null && marks.size() > 0 && editor != null) {
-      // Calculate the logical position of the start and end of the deleted text
-      int delEndOff = delStartOff + delLength - 1;
-      LogicalPosition delStart = editor.offsetToLogicalPosition(delStartOff);
-      LogicalPosition delEnd = editor.offsetToLogicalPosition(delEndOff + 1);
-      if (logger.isDebugEnabled()) logger.debug("mark delete. delStart = " + delStart + ", delEnd = " + delEnd);
-
-      // Now analyze each mark to determine if it needs to be updated or removed
-      for (Character ch : marks.keySet()) {
-        Mark mark = marks.get(ch);
-
-        if (logger.isDebugEnabled()) logger.debug("mark = " + mark);
-        // If the end of the deleted text is prior to the marked line, simply shift the mark up by the
-        // proper number of lines.
-        if (delEnd.line < mark.getLogicalLine()) {
-          int lines = delEnd.line - delStart.line;
-          if (logger.isDebugEnabled()) logger.debug("Shifting mark by " + lines + " lines");
-          mark.setLogicalLine(mark.getLogicalLine() - lines);
-        }
-        // If the deleted text begins before the mark and ends after the mark then it may be shifted or deleted
-        else if (delStart.line <= mark.getLogicalLine() && delEnd.line >= mark.getLogicalLine()) {
-          int markLineStartOff = EditorHelper.getLineStartOffset(editor, mark.getLogicalLine());
-          int markLineEndOff = EditorHelper.getLineEndOffset(editor, mark.getLogicalLine(), true);
-
-          Command command = CommandState.getInstance(editor).getCommand();
-          // If text is being changed from the start of the mark line (a special case for mark deletion)
-          boolean changeFromMarkLineStart = command != null && command.getType() == Command.Type.CHANGE
-                                            && delStartOff == markLineStartOff;
-          // If the marked line is completely within the deleted text, remove the mark (except the special case)
-          if (delStartOff <= markLineStartOff && delEndOff >= markLineEndOff && !changeFromMarkLineStart) {
-            VimPlugin.getMark().removeMark(ch, mark);
-            logger.debug("Removed mark");
-          }
-          // The deletion only covers part of the marked line so shift the mark only if the deletion begins
-          // on a line prior to the marked line (which means the deletion must end on the marked line).
-          else if (delStart.line < mark.getLogicalLine()) {
-            // shift mark
-            mark.setLogicalLine(delStart.line);
-            if (logger.isDebugEnabled()) logger.debug("Shifting mark to line " + delStart.line);
-          }
-        }
+  @NotNull
+  private static String saveLocations(@NotNull List<Jump> locations, boolean withFilename) {
+    final StringBuilder text = new StringBuilder();
+    for (Jump location : locations) {
+      if (location.isClear()) {
+        continue;
+      }
+      if (text.length() > 0) {
+        text.append('\n');
+      }
+      text.append(location.getLogicalLine()).append(',').append(location.getCol());
+      if (withFilename) {
+        text.append(',').append(StringUtil.notNullize(location.getFilename()));
       }
     }
+    return text.toString();
   }
 
   /**
-   * This updates all the marks for a file whenever text is inserted into the file. If the line that contains a mark
-   * that is after the start of the insertion point, shift the mark by the number of new lines added.
+   * Reads locations stored by {@link #saveLocations(List, boolean)}
    *
-   * @param editor      The editor that was updated
-   * @param marks       The editor's marks
-   * @param insStartOff The insertion point
-   * @param insLength   The length of the insertion
+   * @param filename The file of the locations if the filenames aren't included
    */
-  public static void updateMarkFromInsert(@Nullable Editor editor, @Nullable HashMap<Character, Mark> marks, int insStartOff, int insLength) {
-    if (marks != null && marks.size() > 0 && editor != null) {
-      int insEndOff = insStartOff + insLength;
-      LogicalPosition insStart = editor.offsetToLogicalPosition(insStartOff);
-      LogicalPosition insEnd = editor.offsetToLogicalPosition(insEndOff);
-      if (logger.isDebugEnabled()) logger.debug("mark insert. insStart = " + insStart + ", insEnd = " + insEnd);
-      int lines = insEnd.line - insStart.line;
-      if (lines == 0) return;
-
-      for (Mark mark : marks.values()) {
-        if (logger.isDebugEnabled()) logger.debug("mark = " + mark);
-        // Shift the mark if the insertion began on a line prior to the marked line.
-        if (insStart.line < mark.getLogicalLine()) {
-          mark.setLogicalLine(mark.getLogicalLine() + lines);
-          if (logger.isDebugEnabled()) logger.debug("Shifting mark by " + lines + " lines");
-        }
+  @NotNull
+  private static List<Jump> readLocations(@NotNull String text, @Nullable String filename) {
+    final List<Jump> res = new ArrayList<>();
+    for (String line : StringUtil.splitByLines(text)) {
+      final String[] parts = line.split(",", filename != null ? 2 : 3);
+      try {
+        res.add(new Jump(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                         filename != null ? filename : parts[2]));
+      }
+      catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+        logger.warn("Invalid location: " + line);
       }
     }
+    return res;
   }
 
-  private static class FileMarks<K, V> extends HashMap<K, V> {
+  /**
+   * The marks of a file.
+   *
+   * While the file is closed its own marks are packed into arrays of keys and positions, and the saved form is kept
+   * until the marks change. Global marks set in the file are shared with the global marks and always kept as they are.
+   */
+  private static class FileMarks extends HashMap<Character, Mark> {
     public void setTimestamp(Date timestamp) {
       this.timestamp = timestamp;
     }
 
-    public V put(K key, V value) {
+    @Override
+    public Mark put(Character key, Mark value) {
       timestamp = new Date();
+      saved = null;
       return super.put(key, value);
     }
 
-    private Date timestamp = new Date();
-  }
+    @Override
+    public Mark remove(Object key) {
+      saved = null;
+      return super.remove(key);
+    }
 
-  /**
-   * This class is used to listen to editor document changes
-   */
-  public static class MarkUpdater implements DocumentListener {
     /**
-     * Creates the listener for the supplied editor
+     * Checks if any of the marks is tracked by a range marker, which means the file is open
      */
-    public MarkUpdater() {
+    public boolean isAttached() {
+      for (Mark mark : values()) {
+        if (mark.isAttached()) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    public boolean isCompact() {
+      return packedKeys != null;
     }
 
     /**
-     * This event indicates that a document is about to be changed. We use this event to update all the
-     * editor's marks if text is about to be deleted.
-     *
-     * @param event The change event
+     * Stops tracking the lines of the marks and packs the marks of the file
      */
-    public void beforeDocumentChange(@NotNull DocumentEvent event) {
-      if (!VimPlugin.isEnabled()) return;
-
-      if (logger.isDebugEnabled()) logger.debug("MarkUpdater before, event = " + event);
-      if (event.getOldLength() == 0) return;
+    public void compact() {
+      if (packedKeys != null) {
+        return;
+      }
+      final char[] keys = new char[size()];
+      final long[] positions = new long[size()];
+      int count = 0;
+      for (Iterator<Mark> iterator = values().iterator(); iterator.hasNext(); ) {
+        final Mark mark = iterator.next();
+        mark.detach();
+        if (GLOBAL_MARKS.indexOf(mark.getKey()) >= 0) {
+          continue;
+        }
+        if (!mark.isClear()) {
+          keys[count] = mark.getKey();
+          positions[count] = ((long)mark.getLogicalLine() << 32) | (mark.getCol() & 0xFFFFFFFFL);
+          count++;
+        }
+        iterator.remove();
+      }
+      packedKeys = Arrays.copyOf(keys, count);
+      packedPositions = Arrays.copyOf(positions, count);
+    }
 
-      Document doc = event.getDocument();
-      updateMarkFromDelete(getAnEditor(doc), VimPlugin.getMark().getAllFileMarks(doc), event.getOffset(),
-                           event.getOldLength());
-      // TODO - update jumps
+    /**
+     * Unpacks the marks of the file
+     */
+    public void expand(@NotNull String filename) {
+      if (packedKeys == null || packedPositions == null) {
+        return;
+      }
+      for (int i = 0; i < packedKeys.length; i++) {
+        final long position = packedPositions[i];
+        super.put(packedKeys[i], new Mark(packedKeys[i], (int)(position >> 32), (int)position, filename, null));
+      }
+      packedKeys = null;
+      packedPositions = null;
+      saved = null;
     }
 
     /**
-     * This event indicates that a document was just changed. We use this event to update all the editor's
-     * marks if text was just added.
+     * Creates the saved form of the marks and changes of the file
      *
-     * @param event The change event
+     * @return The element for the file, null if there is nothing to save
      */
-    public void documentChanged(@NotNull DocumentEvent event) {
-      if (!VimPlugin.isEnabled()) return;
-
-      if (logger.isDebugEnabled()) logger.debug("MarkUpdater after, event = " + event);
-      if (event.getNewLength() == 0 || (event.getNewLength() == 1 && event.getNewFragment().charAt(0) != '\n')) return;
+    @Nullable
+    public Element save(@NotNull String filename) {
+      // The saved data may still be written by another thread, so it gets a copy
+      if (saved != null) {
+        return saved.clone();
+      }
+      final Element fileMarkElem = new Element("file");
+      fileMarkElem.setAttribute("name", filename);
+      fileMarkElem.setAttribute("timestamp", Long.toString(timestamp.getTime()));
+      for (Mark mark : values()) {
+        if (!mark.isClear()) {
+          saveMark(fileMarkElem, mark.getKey(), mark.getLogicalLine(), mark.getCol());
+        }
+      }
+      if (packedKeys != null && packedPositions != null) {
+        for (int i = 0; i < packedKeys.length; i++) {
+          saveMark(fileMarkElem, packedKeys[i], (int)(packedPositions[i] >> 32), (int)packedPositions[i]);
+        }
+      }
+      if (!changes.isEmpty()) {
+        final Element changesElem = new Element("changes");
+        changesElem.setText(saveLocations(changes, false));
+        fileMarkElem.addContent(changesElem);
+      }
+      if (fileMarkElem.getContentSize() == 0) {
+        return null;
+      }
+      // The marks of an open file follow its edits, only the saved form of a closed file stays valid
+      if (isCompact()) {
+        saved = fileMarkElem.clone();
+      }
+      return fileMarkElem;
+    }
 
-      Document doc = event.getDocument();
-      updateMarkFromInsert(getAnEditor(doc), VimPlugin.getMark().getAllFileMarks(doc), event.getOffset(),
-                           event.getNewLength());
-      // TODO - update jumps
+    private static void saveMark(@NotNull Element fileMarkElem, char key, int line, int col) {
+      if (!Character.isUpperCase(key) && SAVE_FILE_MARKS.indexOf(key) >= 0) {
+        Element markElem = new Element("mark");
+        markElem.setAttribute("key", Character.toString(key));
+        markElem.setAttribute("line", Integer.toString(line));
+        markElem.setAttribute("column", Integer.toString(col));
+        fileMarkElem.addContent(markElem);
+      }
     }
 
-    @Nullable
-    private Editor getAnEditor(@NotNull Document doc) {
-      Editor[] editors = EditorFactory.getInstance().getEditors(doc);
+    private Date timestamp = new Date();
+    @NotNull private final LocationList<Jump> changes = new LocationList<>(SAVE_CHANGE_COUNT, false);
+    /**
+     * The current position in the change list, moved by g; and g,
+     */
+    private int changeIndex;
+    @Nullable private char[] packedKeys;
+    @Nullable private long[] packedPositions;
+    @Nullable private Element saved;
+  }
 
-      if (editors.length > 0) {
-        return editors[0];
-      }
-      else {
-        return null;
+  /**
+   * This class notes the edits that move the marks of the open files to other lines.
+   */
+  public static class MarkUpdater extends DocumentAdapter {
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+      if (StringUtil.containsLineBreak(event.getOldFragment()) || StringUtil.containsLineBreak(event.getNewFragment())) {
+        VimPlugin.getMark().modificationCount++;
       }
     }
   }
 
-  @NotNull private final HashMap<String, FileMarks<Character, Mark>> fileMarks = new HashMap<>();
+  /**
+   * The marks of the files in access order, the least recently used closed file is dropped over {@link #KEPT_FILE_COUNT}
+   * files or the number of files saved with the "'" parameter of the 'viminfo' option if that is larger
+   */
+  @NotNull private final LinkedHashMap<String, FileMarks> fileMarks = new LinkedHashMap<String, FileMarks>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, FileMarks> eldest) {
+      if (size() > Math.max(KEPT_FILE_COUNT, VimInfo.getMaxMarkedFiles())) {
+        // The open files at the least recently used end are skipped, iterating doesn't change the access order
+        for (Iterator<FileMarks> iterator = values().iterator(); iterator.hasNext(); ) {
+          if (iterator.next().isCompact()) {
+            iterator.remove();
+            break;
+          }
+        }
+      }
+      return false;
+    }
+  };
   @NotNull private final HashMap<Character, Mark> globalMarks = new HashMap<>();
-  @NotNull private final List<Jump> jumps = new ArrayList<>();
+  @NotNull private final LocationList<Jump> jumps = new LocationList<>(SAVE_JUMP_COUNT, true);
   private int jumpSpot = -1;
+  private int modificationCount;
 
-  private static final int SAVE_MARK_COUNT = 20;
   private static final int SAVE_JUMP_COUNT = 100;
+  private static final int SAVE_CHANGE_COUNT = 100;
+  private static final int KEPT_FILE_COUNT = 1000;
+
+  private static final String COMPACT_FORMAT = "compact";
 
   private static final String WR_GLOBAL_MARKS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
   private static final String WR_FILE_MARKS = "abcdefghijklmnopqrstuvwxyz'";
@@ -35,6 +35,7 @@ import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.openapi.vfs.VirtualFileSystem;
 import com.maddyhome.idea.vim.EventFacade;
 import com.maddyhome.idea.vim.KeyHandler;
+import com.maddyhome.idea.vim.MotionCoalescer;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.action.motion.MotionEditorAction;
 import com.maddyhome.idea.vim.action.motion.TextObjectAction;
@@ -483,6 +484,17 @@ public class MotionGroup {
     }
   }
 
+  public int moveCaretToChange(@NotNull Editor editor, int count) {
+    final Jump change = VimPlugin.getMark().getChange(editor, count);
+    if (change == null) {
+      return -1;
+    }
+
+    final int line = EditorHelper.normalizeLine(editor, change.getLogicalLine());
+    final int offset = editor.logicalPositionToOffset(new LogicalPosition(line, change.getCol()));
+    return EditorHelper.normalizeOffset(editor, offset, false);
+  }
+
   @Nullable
   private Editor selectEditor(@NotNull Editor editor, @NotNull Mark mark) {
     final VirtualFile virtualFile = markToVirtualFile(mark);
@@ -791,7 +803,7 @@ public class MotionGroup {
   }
 
   private void scrollColumnToScreenColumn(@NotNull Editor editor, int column) {
-    int scrollOffset = ((NumberOption) Options.getInstance().getOption("sidescrolloff")).value();
+    int scrollOffset = Options.getInstance().sidescrolloff.value();
     int width = EditorHelper.getScreenWidth(editor);
     if (scrollOffset > width / 2) {
       scrollOffset = width / 2;
@@ -814,7 +826,7 @@ public class MotionGroup {
   }
 
   private void scrollLineToScreenLine(@NotNull Editor editor, int line, int rawCount, int count, boolean start) {
-    int scrollOffset = ((NumberOption) Options.getInstance().getOption("scrolloff")).value();
+    int scrollOffset = Options.getInstance().scrolloff.value();
     int height = EditorHelper.getScreenHeight(editor);
     if (scrollOffset > height / 2) {
       scrollOffset = height / 2;
@@ -863,7 +875,7 @@ public class MotionGroup {
 
   private int moveCaretToScreenLine(@NotNull Editor editor, int line) {
     //saveJumpLocation(editor, context);
-    int scrollOffset = ((NumberOption) Options.getInstance().getOption("scrolloff")).value();
+    int scrollOffset = Options.getInstance().scrolloff.value();
     int height = EditorHelper.getScreenHeight(editor);
     if (scrollOffset > height / 2) {
       scrollOffset = height / 2;
@@ -882,7 +894,7 @@ public class MotionGroup {
   }
 
   public boolean scrollHalfPage(@NotNull Editor editor, int dir, int count) {
-    NumberOption scroll = (NumberOption) Options.getInstance().getOption("scroll");
+    NumberOption scroll = Options.getInstance().scroll;
     int height = EditorHelper.getScreenHeight(editor) / 2;
     if (count == 0) {
       count = scroll.value();
@@ -921,8 +933,8 @@ public class MotionGroup {
   }
 
   private static void moveCaretToView(@NotNull Editor editor) {
-    int scrollOffset = ((NumberOption) Options.getInstance().getOption("scrolloff")).value();
-    int sideScrollOffset = ((NumberOption) Options.getInstance().getOption("sidescrolloff")).value();
+    int scrollOffset = Options.getInstance().scrolloff.value();
+    int sideScrollOffset = Options.getInstance().sidescrolloff.value();
     int height = EditorHelper.getScreenHeight(editor);
     int width = EditorHelper.getScreenWidth(editor);
     if (scrollOffset > height / 2) {
@@ -1330,10 +1342,10 @@ public class MotionGroup {
     final int line = position.line;
     final int column = position.column;
     final int topLine = EditorHelper.getVisualLineAtTopOfScreen(editor);
-    int scrollOffset = ((NumberOption) Options.getInstance().getOption("scrolloff")).value();
+    int scrollOffset = Options.getInstance().scrolloff.value();
     int scrollJumpSize = 0;
     if (scrollJump) {
-      scrollJumpSize = Math.max(0, ((NumberOption) Options.getInstance().getOption("scrolljump")).value() - 1);
+      scrollJumpSize = Math.max(0, Options.getInstance().scrolljump.value() - 1);
     }
 
     int height = EditorHelper.getScreenHeight(editor);
@@ -1379,10 +1391,10 @@ public class MotionGroup {
     int visualColumn = EditorHelper.getVisualColumnAtLeftOfScreen(editor);
     int width = EditorHelper.getScreenWidth(editor);
     scrollJump = (CommandState.getInstance(editor).getFlags() & Command.FLAG_IGNORE_SIDE_SCROLL_JUMP) == 0;
-    scrollOffset = ((NumberOption) Options.getInstance().getOption("sidescrolloff")).value();
+    scrollOffset = Options.getInstance().sidescrolloff.value();
     scrollJumpSize = 0;
     if (scrollJump) {
-      scrollJumpSize = Math.max(0, ((NumberOption) Options.getInstance().getOption("sidescroll")).value() - 1);
+      scrollJumpSize = Math.max(0, Options.getInstance().sidescroll.value() - 1);
       if (scrollJumpSize == 0) {
         scrollJumpSize = width / 2;
       }
@@ -1519,7 +1531,7 @@ public class MotionGroup {
       CaretData.setVisualStart(caret, caret.getSelectionStart());
       int visualEnd = caret.getSelectionEnd();
       if (CommandState.getInstance(editor).getSubMode() == CommandState.SubMode.VISUAL_CHARACTER) {
-        BoundStringOption opt = (BoundStringOption) Options.getInstance().getOption("selection");
+        BoundStringOption opt = Options.getInstance().selection;
         int adj = 1;
         if (opt.getValue().equals("exclusive")) {
           adj = 0;
@@ -1765,7 +1777,7 @@ public class MotionGroup {
           start = end;
           end = t;
         }
-        final BoundStringOption opt = (BoundStringOption) Options.getInstance().getOption("selection");
+        final BoundStringOption opt = Options.getInstance().selection;
         int lineEnd = EditorHelper.getLineEndForOffset(editor, end);
         final int adj = opt.getValue().equals("exclusive") || end == lineEnd ? 0 : 1;
         final int adjEnd = Math.min(EditorHelper.getFileSize(editor), end + adj);
@@ -1880,6 +1892,8 @@ public class MotionGroup {
     }
 
     public void mousePressed(EditorMouseEvent event) {
+      // The held back motions were typed before the click moves the caret
+      MotionCoalescer.getInstance().flush();
     }
 
     public void mouseClicked(@NotNull EditorMouseEvent event) {
@@ -19,8 +19,17 @@
 package com.maddyhome.idea.vim.group;
 
 import com.intellij.openapi.actionSystem.DataContext;
+import com.intellij.openapi.application.Application;
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressIndicator;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Computable;
+import com.intellij.openapi.util.ThrowableComputable;
 import com.intellij.util.text.CharSequenceReader;
 import com.maddyhome.idea.vim.KeyHandler;
 import com.maddyhome.idea.vim.VimPlugin;
@@ -30,6 +39,8 @@ import com.maddyhome.idea.vim.command.MappingMode;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.ex.CommandParser;
 import com.maddyhome.idea.vim.ex.ExException;
+import com.maddyhome.idea.vim.helper.MessageHelper;
+import com.maddyhome.idea.vim.helper.Msg;
 import com.maddyhome.idea.vim.helper.UiHelper;
 import com.maddyhome.idea.vim.ui.ExEntryPanel;
 import org.jetbrains.annotations.NotNull;
@@ -37,6 +48,14 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *
@@ -111,18 +130,20 @@ public class ProcessGroup {
       final String text = panel.getText();
       record(editor, text);
       if (logger.isDebugEnabled()) logger.debug("swing=" + SwingUtilities.isEventDispatchThread());
+      final Application application = ApplicationManager.getApplication();
       if (panel.getLabel().equals(":")) {
+        // The parser runs the command in a write action unless the command takes it itself
         flags = CommandParser.getInstance().processCommand(editor, context, text, 1);
         if (logger.isDebugEnabled()) logger.debug("flags=" + flags);
         if (CommandState.getInstance(editor).getMode() == CommandState.Mode.VISUAL) {
-          VimPlugin.getMotion().exitVisual(editor);
+          application.runWriteAction(() -> VimPlugin.getMotion().exitVisual(editor));
         }
       }
       else {
-        int pos = VimPlugin.getSearch().search(editor, text, panel.getCount(),
-                                                                 panel.getLabel().equals("/")
-                                                                 ? Command.FLAG_SEARCH_FWD
-                                                                 : Command.FLAG_SEARCH_REV, true);
+        final int count = panel.getCount();
+        final int flag = panel.getLabel().equals("/") ? Command.FLAG_SEARCH_FWD : Command.FLAG_SEARCH_REV;
+        int pos = application.runWriteAction(
+          (Computable<Integer>)() -> VimPlugin.getSearch().search(editor, text, count, flag, true));
         if (pos == -1) {
           res = false;
         }
@@ -184,39 +205,175 @@ public class ProcessGroup {
 
   public boolean executeFilter(@NotNull Editor editor, @NotNull TextRange range,
                                @NotNull String command) throws IOException {
-    final CharSequence charsSequence = editor.getDocument().getCharsSequence();
+    final Document document = editor.getDocument();
     final int startOffset = range.getStartOffset();
     final int endOffset = range.getEndOffset();
-    final String output = executeCommand(command, charsSequence.subSequence(startOffset, endOffset));
-    editor.getDocument().replaceString(startOffset, endOffset, output);
+    // An immutable snapshot can be handed to the stdin pump without holding a read action
+    final CharSequence input = document.getImmutableCharSequence().subSequence(startOffset, endOffset);
+    final String output = executeCommand(editor.getProject(), command, input);
+    ApplicationManager.getApplication().runWriteAction(() -> document.replaceString(startOffset, endOffset, output));
     return true;
   }
 
   @NotNull
   public String executeCommand(@NotNull String command, @Nullable CharSequence input) throws IOException {
+    return executeCommand(null, command, input);
+  }
+
+  /**
+   * Runs an external command, feeding it the optional input and collecting its standard output.
+   *
+   * When called on the event dispatch thread the process is run under a cancellable modal progress indicator, so
+   * the UI stays responsive. Cancelling the indicator destroys the process.
+   *
+   * @param project The project to show the progress indicator for
+   * @param command The command line to execute
+   * @param input   The text to send to the standard input of the command, if any
+   * @return The standard output of the command
+   * @throws IOException if the command can't be started, fails while transferring data or is interrupted
+   */
+  @NotNull
+  public String executeCommand(@Nullable Project project, @NotNull final String command,
+                               @Nullable final CharSequence input) throws IOException {
     if (logger.isDebugEnabled()) {
       logger.debug("command=" + command);
     }
 
+    final ThrowableComputable<String, IOException> task = () -> runProcess(command, input);
+    final Application application = ApplicationManager.getApplication();
+    final String output;
+    try {
+      if (application.isDispatchThread() && !application.isUnitTestMode()) {
+        output = ProgressManager.getInstance().runProcessWithProgressSynchronously(task, "Running " + command, true,
+                                                                                   project);
+      }
+      else {
+        output = task.compute();
+      }
+    }
+    catch (ProcessCanceledException e) {
+      throw new IOException(MessageHelper.message(Msg.e_interr));
+    }
+
+    lastCommand = command;
+    return output;
+  }
+
+  /**
+   * Runs the process with a separate pump thread for each of its standard streams, so that neither side can block
+   * the other once the pipe buffers fill up. The standard output is handed over through a bounded queue and is
+   * collected on the calling thread, which also polls for cancellation.
+   */
+  @NotNull
+  private String runProcess(@NotNull String command, @Nullable final CharSequence input) throws IOException {
     final Process process = Runtime.getRuntime().exec(command);
+    final Application application = ApplicationManager.getApplication();
+    final BlockingQueue<char[]> chunks = new ArrayBlockingQueue<>(MAX_PENDING_CHUNKS);
+    final AtomicReference<IOException> pumpError = new AtomicReference<>();
+    final StringBuilder errors = new StringBuilder();
+    final List<Future<?>> pumps = new ArrayList<>(3);
+    boolean finished = false;
+    try {
+      pumps.add(application.executeOnPooledThread(() -> pumpInput(process.getOutputStream(), input)));
+      pumps.add(application.executeOnPooledThread(() -> pumpOutput(process.getInputStream(), chunks, pumpError)));
+      pumps.add(application.executeOnPooledThread(() -> pumpErrors(process.getErrorStream(), errors)));
+
+      final ProgressIndicator indicator = ProgressManager.getInstance().getProgressIndicator();
+      final StringBuilder output = new StringBuilder();
+      while (true) {
+        ProgressManager.checkCanceled();
+        final char[] chunk = chunks.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        if (chunk == END_OF_STREAM) {
+          break;
+        }
+        if (chunk != null) {
+          output.append(chunk);
+          if (indicator != null) {
+            indicator.setText2(output.length() + " characters received");
+          }
+        }
+      }
+
+      while (!process.waitFor(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        ProgressManager.checkCanceled();
+      }
+      finished = true;
+
+      final IOException error = pumpError.get();
+      if (error != null) {
+        throw error;
+      }
+      if (logger.isDebugEnabled()) {
+        logger.debug("exit=" + process.exitValue() + ", stderr=" + errors);
+      }
+      return output.toString();
+    }
+    catch (InterruptedException e) {
+      throw new IOException(MessageHelper.message(Msg.e_interr), e);
+    }
+    finally {
+      if (!finished) {
+        process.destroy();
+        for (Future<?> pump : pumps) {
+          pump.cancel(true);
+        }
+      }
+    }
+  }
 
-    if (input != null) {
-      final BufferedWriter outputWriter = new BufferedWriter(new OutputStreamWriter(process.getOutputStream()));
-      copy(new CharSequenceReader(input), outputWriter);
-      outputWriter.close();
+  private static void pumpInput(@NotNull OutputStream stream, @Nullable CharSequence input) {
+    try (Writer writer = new BufferedWriter(new OutputStreamWriter(stream))) {
+      if (input != null) {
+        copy(new CharSequenceReader(input), writer);
+      }
     }
+    catch (IOException e) {
+      // The process may legitimately exit without reading all of its input
+      if (logger.isDebugEnabled()) {
+        logger.debug("stdin closed early: " + e.getMessage());
+      }
+    }
+  }
 
-    final BufferedReader inputReader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-    final StringWriter writer = new StringWriter();
-    copy(inputReader, writer);
-    writer.close();
+  private static void pumpOutput(@NotNull InputStream stream, @NotNull BlockingQueue<char[]> chunks,
+                                 @NotNull AtomicReference<IOException> error) {
+    try (Reader reader = new InputStreamReader(stream)) {
+      final char[] buf = new char[BUFFER_SIZE];
+      int cnt;
+      while ((cnt = reader.read(buf)) != -1) {
+        chunks.put(Arrays.copyOf(buf, cnt));
+      }
+    }
+    catch (IOException e) {
+      error.compareAndSet(null, e);
+    }
+    catch (InterruptedException e) {
+      return;
+    }
+    try {
+      chunks.put(END_OF_STREAM);
+    }
+    catch (InterruptedException ignored) {
+    }
+  }
 
-    lastCommand = command;
-    return writer.toString();
+  private static void pumpErrors(@NotNull InputStream stream, @NotNull StringBuilder errors) {
+    try (Reader reader = new InputStreamReader(stream)) {
+      final char[] buf = new char[BUFFER_SIZE];
+      int cnt;
+      while ((cnt = reader.read(buf)) != -1) {
+        // Keep draining so the process never blocks on a full stderr pipe, but only remember the beginning
+        synchronized (errors) {
+          errors.append(buf, 0, Math.min(cnt, Math.max(0, MAX_ERROR_LENGTH - errors.length())));
+        }
+      }
+    }
+    catch (IOException ignored) {
+    }
   }
 
-  private void copy(@NotNull Reader from, @NotNull Writer to) throws IOException {
-    char[] buf = new char[2048];
+  private static void copy(@NotNull Reader from, @NotNull Writer to) throws IOException {
+    char[] buf = new char[BUFFER_SIZE];
     int cnt;
     while ((cnt = from.read(buf)) != -1) {
       to.write(buf, 0, cnt);
@@ -225,5 +382,11 @@ public class ProcessGroup {
 
   private String lastCommand;
 
+  private static final int BUFFER_SIZE = 8192;
+  private static final int MAX_PENDING_CHUNKS = 64;
+  private static final int MAX_ERROR_LENGTH = 4096;
+  private static final long POLL_INTERVAL_MS = 50;
+  private static final char[] END_OF_STREAM = new char[0];
+
   private static final Logger logger = Logger.getInstance(ProcessGroup.class.getName());
 }
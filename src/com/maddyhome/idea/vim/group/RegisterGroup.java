@@ -23,7 +23,6 @@ import com.intellij.openapi.actionSystem.AnAction;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.util.text.StringUtil;
-import com.intellij.util.containers.ContainerUtil;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.action.motion.mark.MotionGotoFileMarkAction;
 import com.maddyhome.idea.vim.action.motion.search.SearchAgainNextAction;
@@ -43,6 +42,7 @@ import com.maddyhome.idea.vim.common.Register;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.helper.EditorHelper;
 import com.maddyhome.idea.vim.helper.StringHelper;
+import com.maddyhome.idea.vim.helper.VimInfo;
 import com.maddyhome.idea.vim.option.ListOption;
 import com.maddyhome.idea.vim.option.Options;
 import com.maddyhome.idea.vim.ui.ClipboardHandler;
@@ -54,7 +54,6 @@ import javax.swing.*;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -71,26 +70,31 @@ public class RegisterGroup {
 
   private char defaultRegister = '"';
   private char lastRegister = defaultRegister;
+  /**
+   * The generation of the clipboard text last seen and its selection type, which is either the type it was yanked with
+   * or a guess
+   */
+  private int clipboardGeneration = -1;
+  @NotNull private SelectionType clipboardType = SelectionType.CHARACTER_WISE;
   @NotNull private final HashMap<Character, Register> registers = new HashMap<>();
   private char recordRegister = 0;
   @Nullable private List<KeyStroke> recordList = null;
+  private int modificationCount;
 
   public RegisterGroup() {
-    final ListOption clipboardOption = Options.getInstance().getListOption(Options.CLIPBOARD);
-    if (clipboardOption != null) {
-      clipboardOption.addOptionChangeListener(event -> {
-        if (clipboardOption.contains("unnamed")) {
-          defaultRegister = '*';
-        }
-        else if (clipboardOption.contains("unnamedplus")) {
-          defaultRegister = '+';
-        }
-        else {
-          defaultRegister = '"';
-        }
-        lastRegister = defaultRegister;
-      });
-    }
+    final ListOption clipboardOption = Options.getInstance().clipboard;
+    clipboardOption.addOptionChangeListener(event -> {
+      if (clipboardOption.contains("unnamed")) {
+        defaultRegister = '*';
+      }
+      else if (clipboardOption.contains("unnamedplus")) {
+        defaultRegister = '+';
+      }
+      else {
+        defaultRegister = '"';
+      }
+      lastRegister = defaultRegister;
+    });
   }
 
   /**
@@ -180,6 +184,8 @@ public class RegisterGroup {
     }
     else if (CLIPBOARD_REGISTERS.contains(register)) {
       ClipboardHandler.setClipboardText(text);
+      clipboardGeneration = ClipboardHandler.getGeneration();
+      clipboardType = type;
     }
     // Put the text in the specified register
     else {
@@ -221,6 +227,8 @@ public class RegisterGroup {
       if (logger.isDebugEnabled()) logger.debug("register '" + '0' + "' contains: \"" + text + "\"");
     }
 
+    modificationCount++;
+
     if (start != -1) {
       VimPlugin.getMark().setChangeMarks(editor, new TextRange(start, Math.max(end - 1, 0)));
     }
@@ -332,6 +340,7 @@ public class RegisterGroup {
 
   public void setKeys(char register, @NotNull List<KeyStroke> keys) {
     registers.put(register, new Register(register, SelectionType.CHARACTER_WISE, keys));
+    modificationCount++;
   }
 
   public void finishRecording(Editor editor) {
@@ -349,6 +358,7 @@ public class RegisterGroup {
         else {
           reg.addKeys(recordList);
         }
+        modificationCount++;
       }
       CommandState.getInstance(editor).setRecording(false);
     }
@@ -356,11 +366,23 @@ public class RegisterGroup {
     recordRegister = 0;
   }
 
+  /**
+   * Gets a counter that is increased whenever the registers change, so the saved data only has to be rebuilt then
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   public void saveData(@NotNull final Element element) {
     logger.debug("saveData");
     final Element registersElement = new Element("registers");
+    final int maxLines = VimInfo.getMaxRegisterLines();
+    final int maxSize = VimInfo.getMaxItemSize();
     for (Character key : registers.keySet()) {
       final Register register = registers.get(key);
+      if (!isSaved(register, maxLines, maxSize)) {
+        continue;
+      }
       final Element registerElement = new Element("register");
       registerElement.setAttribute("name", String.valueOf(key));
       registerElement.setAttribute("type", Integer.toString(register.getType().getValue()));
@@ -388,6 +410,22 @@ public class RegisterGroup {
     element.addContent(registersElement);
   }
 
+  /**
+   * Checks the register against the limits of the 'viminfo' option, registers over the limits aren't saved at all.
+   */
+  private static boolean isSaved(@NotNull Register register, int maxLines, int maxSize) {
+    final String text = register.getText();
+    final int size = text != null ? text.length() : register.getKeys().size();
+    if (maxSize >= 0 && size > maxSize) {
+      return false;
+    }
+    if (maxLines >= 0) {
+      final int lines = text != null ? StringUtil.countNewLines(text) + (StringUtil.endsWithChar(text, '\n') ? 0 : 1) : 1;
+      return lines <= maxLines;
+    }
+    return true;
+  }
+
   public void readData(@NotNull final Element element) {
     logger.debug("readData");
     final Element registersElement = element.getChild("registers");
@@ -432,18 +470,41 @@ public class RegisterGroup {
 
   @Nullable
   private Register refreshClipboardRegister(char r) {
+    final int generation = ClipboardHandler.getGeneration();
     final String text = ClipboardHandler.getClipboardText();
-    if (text != null) {
-      return new Register(r, guessSelectionType(text), text);
+    if (text == null) {
+      return null;
     }
-    return null;
+    // The selection type is only guessed again once the clipboard text may have changed
+    if (generation != clipboardGeneration) {
+      clipboardGeneration = generation;
+      clipboardType = guessSelectionType(text);
+    }
+    return new Register(r, clipboardType, text);
   }
 
   @NotNull
-  private SelectionType guessSelectionType(@NotNull String text) {
-    final String[] lines = StringUtil.splitByLines(text);
-    final HashSet<Integer> lengths = new HashSet<>(ContainerUtil.map(lines, String::length));
-    if (lines.length > 1 && lengths.size() == 1) {
+  private static SelectionType guessSelectionType(@NotNull String text) {
+    // Several non-empty lines of equal length look like a block
+    int lines = 0;
+    int lineLength = -1;
+    boolean sameLength = true;
+    int start = 0;
+    while (start < text.length()) {
+      int end = start;
+      while (end < text.length() && text.charAt(end) != '\n' && text.charAt(end) != '\r') {
+        end++;
+      }
+      if (end > start) {
+        if (lineLength >= 0 && end - start != lineLength) {
+          sameLength = false;
+        }
+        lineLength = end - start;
+        lines++;
+      }
+      start = end + 1;
+    }
+    if (lines > 1 && sameLength) {
       return SelectionType.BLOCK_WISE;
     }
     else if (text.endsWith("\n")) {
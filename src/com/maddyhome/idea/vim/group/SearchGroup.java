@@ -43,7 +43,6 @@ import com.maddyhome.idea.vim.common.CharacterPosition;
 import com.maddyhome.idea.vim.common.TextRange;
 import com.maddyhome.idea.vim.ex.LineRange;
 import com.maddyhome.idea.vim.helper.*;
-import com.maddyhome.idea.vim.option.ListOption;
 import com.maddyhome.idea.vim.option.Options;
 import com.maddyhome.idea.vim.regexp.CharHelper;
 import com.maddyhome.idea.vim.regexp.CharPointer;
@@ -170,7 +169,7 @@ public class SearchGroup {
       cmd.inc();
     }
     else {
-      do_all = Options.getInstance().isSet("gdefault");
+      do_all = Options.getInstance().gdefault.getValue();
       do_ask = false;
       do_error = true;
       //do_print = false;
@@ -255,6 +254,7 @@ public class SearchGroup {
 
     lastSubstitute = pattern;
     lastSearch = pattern;
+    modificationCount++;
     if (pattern != null) {
       setLastPattern(editor, pattern);
     }
@@ -302,6 +302,7 @@ public class SearchGroup {
     }
 
     lastReplace = sub.toString();
+    modificationCount++;
 
     searchHighlight(false);
 
@@ -447,8 +448,8 @@ public class SearchGroup {
   }
 
   private static boolean shouldIgnoreCase(@NotNull String pattern, boolean noSmartCase) {
-    boolean sc = !noSmartCase && Options.getInstance().isSet("smartcase");
-    boolean ic = Options.getInstance().isSet("ignorecase");
+    boolean sc = !noSmartCase && Options.getInstance().smartcase.getValue();
+    boolean ic = Options.getInstance().ignorecase.getValue();
 
     return ic && !(sc && StringHelper.containsUpperCase(pattern));
   }
@@ -510,6 +511,7 @@ public class SearchGroup {
     }
     lastOffset = offset;
     lastDir = dir;
+    modificationCount++;
 
     if (logger.isDebugEnabled()) {
       logger.debug("lastSearch=" + lastSearch);
@@ -543,6 +545,7 @@ public class SearchGroup {
     setLastPattern(editor, lastSearch);
     lastOffset = "";
     lastDir = dir;
+    modificationCount++;
 
     searchHighlight(true);
 
@@ -572,7 +575,8 @@ public class SearchGroup {
   }
 
   private void searchHighlight(boolean noSmartCase) {
-    showSearchHighlight = Options.getInstance().isSet("hlsearch");
+    showSearchHighlight = Options.getInstance().hlsearch.getValue();
+    modificationCount++;
     highlightSearch(noSmartCase);
   }
 
@@ -630,7 +634,7 @@ public class SearchGroup {
       }
       return d2 - d1;
     });
-    if (!Options.getInstance().isSet("wrapscan")) {
+    if (!Options.getInstance().wrapscan.getValue()) {
       final int start = max.getStartOffset();
       if (forwards && start < offset) {
         return null;
@@ -720,7 +724,7 @@ public class SearchGroup {
 
   private int findItOffset(@NotNull Editor editor, int startOffset, int count, int dir,
                            boolean noSmartCase) {
-    boolean wrap = Options.getInstance().isSet("wrapscan");
+    boolean wrap = Options.getInstance().wrapscan.getValue();
     TextRange range = findIt(editor, startOffset, count, dir, noSmartCase, wrap, true, true);
     if (range == null) {
       return -1;
@@ -749,6 +753,7 @@ public class SearchGroup {
       else {
         if (lastOffset.charAt(0) == '+') {
           lastOffset = lastOffset.substring(1);
+          modificationCount++;
         }
         NumberFormat nf = NumberFormat.getIntegerInstance();
         pp = new ParsePosition(0);
@@ -1104,6 +1109,7 @@ public class SearchGroup {
 
   public void clearSearchHighlight() {
     showSearchHighlight = false;
+    modificationCount++;
     updateHighlight();
   }
 
@@ -1123,6 +1129,13 @@ public class SearchGroup {
     EditorData.setLastSearch(editor, null);
   }
 
+  /**
+   * Gets a counter that is increased whenever the last search changes, so the saved data only has to be rebuilt then
+   */
+  public int getModificationCount() {
+    return modificationCount;
+  }
+
   public void saveData(@NotNull Element element) {
     logger.debug("saveData");
     Element search = new Element("search");
@@ -1175,8 +1188,7 @@ public class SearchGroup {
     lastDir = Integer.parseInt(dir.getText());
 
     Element show = search.getChild("show-last");
-    final ListOption vimInfo = Options.getInstance().getListOption(Options.VIMINFO);
-    final boolean disableHighlight = vimInfo != null && vimInfo.contains("h");
+    final boolean disableHighlight = Options.getInstance().viminfo.contains("h");
     showSearchHighlight = !disableHighlight && Boolean.valueOf(show.getText());
     if (logger.isDebugEnabled()) {
       logger.debug("show=" + show + "(" + show.getText() + ")");
@@ -1266,7 +1278,8 @@ public class SearchGroup {
   @Nullable private String lastReplace;
   @Nullable private String lastOffset;
   private int lastDir;
-  private boolean showSearchHighlight = Options.getInstance().isSet("hlsearch");
+  private boolean showSearchHighlight = Options.getInstance().hlsearch.getValue();
+  private int modificationCount;
 
   private boolean do_all = false; /* do multiple substitutions per line */
   private boolean do_ask = false; /* ask for confirmation */
@@ -0,0 +1,299 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.helper;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentAdapter;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Index of the block characters of a document, used to find the matching characters of blocks without scanning the
+ * text.
+ * <p>
+ * Block characters in double quoted strings and in single quoted characters aren't part of any block. Strings and
+ * characters end with their line, so a change only needs the lines it touches to be lexed again. The blocks are
+ * linked again on the first search after a change.
+ */
+public class BracketIndex {
+  /**
+   * Checks if the blocks of the pair of characters can be looked up in the index
+   */
+  public static boolean isIndexed(char open, char close) {
+    return open != close && !isQuote(open) && !isQuote(close) && open != '\n' && close != '\n';
+  }
+
+  /**
+   * Finds the count-th unmatched block character from the supplied position, like a scan of the text that skips
+   * strings and characters would do. A <code>found</code> character at the starting position is ignored.
+   *
+   * @param document The document to search in
+   * @param found    The block character that starts a nested block in the search direction
+   * @param match    The block character to find
+   * @param dir      The direction to search, -1 is backward, 1 is forward
+   * @param pos      The starting position
+   * @param cnt      The number of unmatched characters to find
+   * @return The offset of the last matching character found, -1 if none was found
+   */
+  public static int findBlockLocation(@NotNull Document document, char found, char match, int dir, int pos, int cnt) {
+    if (pos < 0 || pos >= document.getTextLength()) {
+      return -1;
+    }
+    final char open = dir > 0 ? found : match;
+    final char close = dir > 0 ? match : found;
+    return getIndex(document).getBlocks(document.getCharsSequence(), open, close).find(dir, pos, cnt);
+  }
+
+  /**
+   * Keeps the indexes of the documents up to date with their changes
+   */
+  public static class DocumentUpdater extends DocumentAdapter {
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+      final Document document = event.getDocument();
+      final BracketIndex index = document.getUserData(INDEX);
+      if (index == null) {
+        return;
+      }
+      if (index.modificationStamp != event.getOldTimeStamp()) {
+        document.putUserData(INDEX, null);
+        return;
+      }
+
+      final CharSequence chars = document.getCharsSequence();
+      final int offset = event.getOffset();
+      int start = offset;
+      while (start > 0 && chars.charAt(start - 1) != '\n') {
+        start--;
+      }
+      int newEnd = offset + event.getNewLength();
+      while (newEnd < chars.length() && chars.charAt(newEnd) != '\n') {
+        newEnd++;
+      }
+      final int oldEnd = newEnd - event.getNewLength() + event.getOldLength();
+      for (Blocks blocks : index.blocks) {
+        blocks.update(chars, start, oldEnd, newEnd);
+      }
+      index.modificationStamp = document.getModificationStamp();
+    }
+  }
+
+  @NotNull
+  private static BracketIndex getIndex(@NotNull Document document) {
+    BracketIndex index = document.getUserData(INDEX);
+    if (index == null || index.modificationStamp != document.getModificationStamp()) {
+      index = new BracketIndex(document.getModificationStamp());
+      document.putUserData(INDEX, index);
+    }
+    return index;
+  }
+
+  private BracketIndex(long modificationStamp) {
+    this.modificationStamp = modificationStamp;
+  }
+
+  @NotNull
+  private Blocks getBlocks(@NotNull CharSequence chars, char open, char close) {
+    for (Blocks blocks : this.blocks) {
+      if (blocks.open == open && blocks.close == close) {
+        return blocks;
+      }
+    }
+    final Blocks blocks = new Blocks(open, close);
+    blocks.lex(chars, 0, chars.length());
+    this.blocks.add(blocks);
+    return blocks;
+  }
+
+  private static boolean isQuote(char c) {
+    return c == '"' || c == '\'';
+  }
+
+  /**
+   * The block characters of one pair in the order of their offsets
+   */
+  private static class Blocks {
+    Blocks(char open, char close) {
+      this.open = open;
+      this.close = close;
+    }
+
+    /**
+     * Adds the block characters outside of strings and characters between the start of a line and the end offset
+     */
+    void lex(@NotNull CharSequence chars, int start, int end) {
+      boolean inString = false;
+      boolean inChar = false;
+      for (int i = start; i < end; i++) {
+        final char c = chars.charAt(i);
+        if (c == open || c == close) {
+          if (!inString && !inChar) {
+            add(i, c == open);
+          }
+        }
+        else if (c == '\n') {
+          inString = false;
+          inChar = false;
+        }
+        else if (!inChar && c == '"' && (i == 0 || chars.charAt(i - 1) != '\\')) {
+          inString = !inString;
+        }
+        else if (!inString && c == '\'' && (i == 0 || chars.charAt(i - 1) != '\\')) {
+          inChar = !inChar;
+        }
+      }
+    }
+
+    /**
+     * Replaces the characters between start and the old end with the lexed characters up to the new end and moves
+     * the following characters by the change in length
+     */
+    void update(@NotNull CharSequence chars, int start, int oldEnd, int newEnd) {
+      final int from = indexOf(offsets, size, start);
+      final int to = indexOf(offsets, size, oldEnd);
+      final Blocks lexed = new Blocks(open, close);
+      lexed.lex(chars, start, newEnd);
+
+      final int tail = size - to;
+      final int newSize = from + lexed.size + tail;
+      if (newSize > offsets.length) {
+        offsets = Arrays.copyOf(offsets, Math.max(newSize, offsets.length * 2));
+        opening = Arrays.copyOf(opening, offsets.length);
+      }
+      System.arraycopy(offsets, to, offsets, from + lexed.size, tail);
+      System.arraycopy(opening, to, opening, from + lexed.size, tail);
+      System.arraycopy(lexed.offsets, 0, offsets, from, lexed.size);
+      System.arraycopy(lexed.opening, 0, opening, from, lexed.size);
+      final int delta = newEnd - oldEnd;
+      for (int i = from + lexed.size; i < newSize; i++) {
+        offsets[i] += delta;
+      }
+      size = newSize;
+      linked = false;
+    }
+
+    int find(int dir, int pos, int cnt) {
+      if (!linked) {
+        link();
+      }
+
+      // The innermost block open at the position, a block starting there included
+      final int i = indexOf(offsets, size, pos);
+      int block = i > 0 ? tops[i - 1] : -1;
+      if (i < size && offsets[i] == pos && opening[i]) {
+        block = i;
+      }
+
+      int res = -1;
+      if (dir < 0) {
+        for (; block >= 0 && cnt > 0; block = enclosing[block], cnt--) {
+          res = offsets[block];
+        }
+        return res;
+      }
+
+      int from = pos;
+      for (; block >= 0 && cnt > 0; block = enclosing[block], cnt--) {
+        if (partners[block] < 0) {
+          return res;
+        }
+        res = offsets[partners[block]];
+        from = res + 1;
+      }
+      // Only closing characters outside of all the blocks are left
+      for (int u = indexOf(unmatched, unmatchedSize, from); u < unmatchedSize && cnt > 0; u++, cnt--) {
+        res = unmatched[u];
+      }
+      return res;
+    }
+
+    /**
+     * Matches the opening and closing characters of the blocks
+     */
+    private void link() {
+      partners = new int[size];
+      enclosing = new int[size];
+      tops = new int[size];
+      unmatched = new int[8];
+      unmatchedSize = 0;
+      int top = -1;
+      for (int i = 0; i < size; i++) {
+        partners[i] = -1;
+        if (opening[i]) {
+          enclosing[i] = top;
+          top = i;
+        }
+        else if (top >= 0) {
+          partners[i] = top;
+          partners[top] = i;
+          top = enclosing[top];
+        }
+        else {
+          if (unmatchedSize == unmatched.length) {
+            unmatched = Arrays.copyOf(unmatched, unmatchedSize * 2);
+          }
+          unmatched[unmatchedSize++] = offsets[i];
+        }
+        tops[i] = top;
+      }
+      linked = true;
+    }
+
+    private void add(int offset, boolean isOpen) {
+      if (size == offsets.length) {
+        offsets = Arrays.copyOf(offsets, size * 2);
+        opening = Arrays.copyOf(opening, size * 2);
+      }
+      offsets[size] = offset;
+      opening[size] = isOpen;
+      size++;
+      linked = false;
+    }
+
+    /**
+     * Gets the index of the first offset that isn't before the supplied one
+     */
+    private static int indexOf(@NotNull int[] offsets, int size, int offset) {
+      final int i = Arrays.binarySearch(offsets, 0, size, offset);
+      return i >= 0 ? i : -i - 1;
+    }
+
+    private final char open;
+    private final char close;
+    @NotNull private int[] offsets = new int[16];
+    @NotNull private boolean[] opening = new boolean[16];
+    private int size;
+    // The blocks are linked lazily on the first search after a change
+    private boolean linked;
+    @NotNull private int[] partners = new int[0];
+    @NotNull private int[] enclosing = new int[0];
+    @NotNull private int[] tops = new int[0];
+    @NotNull private int[] unmatched = new int[0];
+    private int unmatchedSize;
+  }
+
+  private long modificationStamp;
+  @NotNull private final List<Blocks> blocks = new ArrayList<>();
+
+  private static final Key<BracketIndex> INDEX = new Key<>("bracketIndex");
+}
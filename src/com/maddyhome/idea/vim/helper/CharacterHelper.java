@@ -18,7 +18,6 @@
 
 package com.maddyhome.idea.vim.helper;
 
-import com.maddyhome.idea.vim.option.KeywordOption;
 import com.maddyhome.idea.vim.option.Options;
 import org.jetbrains.annotations.NotNull;
 
@@ -40,6 +39,10 @@ public class CharacterHelper {
   public static final char CASE_UPPER = 'u';
   public static final char CASE_LOWER = 'l';
 
+  private static final byte OPTION_DEPENDENT = -1;
+  private static final CharacterType[] TYPES = CharacterType.values();
+  private static final byte[] CHAR_TYPES = createCharTypes();
+
   /**
    * This returns the type of the supplied character. The logic is as follows:<br>
    * If the character is whitespace, <code>WHITESPACE</code> is returned.<br>
@@ -53,20 +56,11 @@ public class CharacterHelper {
    */
   @NotNull
   public static CharacterType charType(char ch, boolean punctuationAsLetters) {
-    final Character.UnicodeBlock block = Character.UnicodeBlock.of(ch);
-    if (Character.isWhitespace(ch)) {
-      return CharacterType.WHITESPACE;
-    }
-    else if (block == Character.UnicodeBlock.HIRAGANA) {
-      return CharacterType.HIRAGANA;
-    }
-    else if (block == Character.UnicodeBlock.KATAKANA) {
-      return CharacterType.KATAKANA;
+    final byte type = CHAR_TYPES[ch];
+    if (type != OPTION_DEPENDENT) {
+      return TYPES[type];
     }
-    else if (isHalfWidthKatakanaLetter(ch)) {
-      return CharacterType.HALF_WIDTH_KATAKANA;
-    }
-    else if (punctuationAsLetters || ((KeywordOption)Options.getInstance().getOption("iskeyword")).isKeyword(ch)) {
+    else if (punctuationAsLetters || Options.getInstance().iskeyword.isKeyword(ch)) {
       return CharacterType.KEYWORD;
     }
     else {
@@ -74,6 +68,41 @@ public class CharacterHelper {
     }
   }
 
+  /**
+   * Computes the types of all the characters once. Only the type of the characters below 0x100 that aren't whitespace
+   * depends on 'iskeyword', all the other characters are always keyword characters.
+   */
+  @NotNull
+  private static byte[] createCharTypes() {
+    final byte[] types = new byte[Character.MAX_VALUE + 1];
+    for (int i = 0; i <= Character.MAX_VALUE; i++) {
+      final char ch = (char)i;
+      final Character.UnicodeBlock block = Character.UnicodeBlock.of(ch);
+      final CharacterType type;
+      if (Character.isWhitespace(ch)) {
+        type = CharacterType.WHITESPACE;
+      }
+      else if (block == Character.UnicodeBlock.HIRAGANA) {
+        type = CharacterType.HIRAGANA;
+      }
+      else if (block == Character.UnicodeBlock.KATAKANA) {
+        type = CharacterType.KATAKANA;
+      }
+      else if (isHalfWidthKatakanaLetter(ch)) {
+        type = CharacterType.HALF_WIDTH_KATAKANA;
+      }
+      else if (ch >= '\u0100') {
+        type = CharacterType.KEYWORD;
+      }
+      else {
+        types[i] = OPTION_DEPENDENT;
+        continue;
+      }
+      types[i] = (byte)type.ordinal();
+    }
+    return types;
+  }
+
   private static boolean isHalfWidthKatakanaLetter(char ch) {
     return ch >= '\uFF66' && ch <= '\uFF9F';
   }
@@ -19,12 +19,14 @@
 package com.maddyhome.idea.vim.helper;
 
 import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentEvent;
 import com.intellij.openapi.editor.event.DocumentListener;
 import com.intellij.openapi.util.Key;
 import com.maddyhome.idea.vim.EventFacade;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 
 public class DocumentManager {
   @NotNull
@@ -33,7 +35,9 @@ public class DocumentManager {
   }
 
   public void addDocumentListener(final DocumentListener listener) {
-    docListeners.add(listener);
+    if (!docListeners.contains(listener)) {
+      docListeners.add(listener);
+    }
   }
 
   public void addListeners(@NotNull Document doc) {
@@ -43,9 +47,7 @@ public class DocumentManager {
     }
 
     doc.putUserData(LISTENER_MARKER, "foo");
-    for (DocumentListener docListener : docListeners) {
-      EventFacade.getInstance().addDocumentListener(doc, docListener);
-    }
+    EventFacade.getInstance().addDocumentListener(doc, fanOut);
   }
 
   public void removeListeners(@NotNull Document doc) {
@@ -55,13 +57,34 @@ public class DocumentManager {
     }
 
     doc.putUserData(LISTENER_MARKER, null);
-    for (DocumentListener docListener : docListeners) {
-      EventFacade.getInstance().removeDocumentListener(doc, docListener);
-    }
+    EventFacade.getInstance().removeDocumentListener(doc, fanOut);
   }
 
+  /**
+   * Dispatches document events to all the registered listeners and records the time spent in them
+   */
+  private class FanOutListener implements DocumentListener {
+    @Override
+    public void beforeDocumentChange(@NotNull DocumentEvent event) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < docListeners.size(); i++) {
+        docListeners.get(i).beforeDocumentChange(event);
+      }
+      KeystrokeStats.getInstance().record(KeystrokeStats.Stage.LISTENERS, start);
+    }
+
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+      final long start = System.nanoTime();
+      for (int i = 0; i < docListeners.size(); i++) {
+        docListeners.get(i).documentChanged(event);
+      }
+      KeystrokeStats.getInstance().record(KeystrokeStats.Stage.LISTENERS, start);
+    }
+  }
 
-  @NotNull private final HashSet<DocumentListener> docListeners = new HashSet<DocumentListener>();
+  @NotNull private final List<DocumentListener> docListeners = new ArrayList<DocumentListener>();
+  @NotNull private final DocumentListener fanOut = new FanOutListener();
 
   private static final Key<String> LISTENER_MARKER = new Key<String>("listenerMarker");
   @NotNull private static final DocumentManager instance = new DocumentManager();
@@ -398,6 +398,7 @@ public class EditorData {
   private static final Key<CommandState.Mode> CHANGE_ACTION_SWITCH_MODE = new Key<>("changeActionSwitchMode");
   private static final Key<Boolean> WAS_VISUAL_BLOCK_MODE = new Key<>("wasVisualBlockMode");
   private static final  Key<Caret> LAST_DOWN_CARET = new Key<>("lastDownCaret");
+  private static final Key<Boolean> PRIMARY_EDITOR = new Key<>("primaryEditor");
 
   private static final Logger logger = Logger.getInstance(EditorData.class.getName());
 
@@ -409,6 +410,21 @@ public class EditorData {
     return virtualFile != null && !(virtualFile instanceof LightVirtualFile);
   }
 
+  /**
+   * Returns whether the editor is known to be a primary editor in the main editing area, null if not known yet
+   */
+  @Nullable
+  public static Boolean isPrimaryEditor(@NotNull Editor editor) {
+    return editor.getUserData(PRIMARY_EDITOR);
+  }
+
+  /**
+   * Remembers whether the editor is a primary editor, null forgets it so it's checked again
+   */
+  public static void setPrimaryEditor(@NotNull Editor editor, @Nullable Boolean value) {
+    editor.putUserData(PRIMARY_EDITOR, value);
+  }
+
   @Nullable
   public static TestInputModel getTestInputModel(@NotNull Editor editor) {
     return editor.getUserData(TEST_INPUT_MODEL);
@@ -0,0 +1,203 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.helper;
+
+import com.intellij.openapi.actionSystem.ActionManager;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.maddyhome.idea.vim.command.CommandState;
+import com.maddyhome.idea.vim.common.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Collects the time spent in the stages of handling a keystroke, per mode and per executed action.
+ */
+public class KeystrokeStats {
+  public enum Stage {
+    MAPPING,
+    LOOKUP,
+    ARGUMENT,
+    EXECUTION,
+    LISTENERS
+  }
+
+  @NotNull private static final KeystrokeStats instance = new KeystrokeStats();
+
+  @NotNull private final LatencyHistogram[][] stages =
+    new LatencyHistogram[Stage.values().length][CommandState.Mode.values().length];
+  @NotNull private final Map<AnAction, LatencyHistogram> actions = new ConcurrentHashMap<>();
+  @NotNull private volatile CommandState.Mode lastMode = CommandState.Mode.COMMAND;
+
+  private KeystrokeStats() {
+    for (LatencyHistogram[] modes : stages) {
+      for (int i = 0; i < modes.length; i++) {
+        modes[i] = new LatencyHistogram();
+      }
+    }
+  }
+
+  @NotNull
+  public static KeystrokeStats getInstance() {
+    return instance;
+  }
+
+  /**
+   * Records the time elapsed since the start of a stage of handling a keystroke typed in the given mode
+   *
+   * @param stage The stage that has just finished
+   * @param mode  The mode the keystroke was typed in
+   * @param start The value of {@link System#nanoTime()} at the start of the stage
+   */
+  public void record(@NotNull Stage stage, @NotNull CommandState.Mode mode, long start) {
+    lastMode = mode;
+    stages[stage.ordinal()][mode.ordinal()].record(System.nanoTime() - start);
+  }
+
+  /**
+   * Records a stage that isn't tied to a keystroke, such as document listeners, under the mode of the last keystroke
+   */
+  public void record(@NotNull Stage stage, long start) {
+    record(stage, lastMode, start);
+  }
+
+  public void recordAction(@NotNull AnAction action, @NotNull CommandState.Mode mode, long start) {
+    final long nanos = System.nanoTime() - start;
+    lastMode = mode;
+    stages[Stage.EXECUTION.ordinal()][mode.ordinal()].record(nanos);
+    actions.computeIfAbsent(action, a -> new LatencyHistogram()).record(nanos);
+  }
+
+  public void reset() {
+    for (LatencyHistogram[] modes : stages) {
+      for (LatencyHistogram histogram : modes) {
+        histogram.reset();
+      }
+    }
+    actions.clear();
+  }
+
+  /**
+   * Returns the non-empty histograms, stages first and then actions ordered by the number of executions.
+   */
+  @NotNull
+  public List<Row> getRows() {
+    final List<Row> rows = new ArrayList<>();
+    for (Stage stage : Stage.values()) {
+      for (CommandState.Mode mode : CommandState.Mode.values()) {
+        final LatencyHistogram histogram = stages[stage.ordinal()][mode.ordinal()];
+        if (histogram.getCount() > 0) {
+          rows.add(new Row(stage.name().toLowerCase(), mode, histogram));
+        }
+      }
+    }
+    final List<Row> actionRows = new ArrayList<>();
+    final ActionManager actionManager = ActionManager.getInstance();
+    for (Map.Entry<AnAction, LatencyHistogram> entry : actions.entrySet()) {
+      final String id = actionManager.getId(entry.getKey());
+      actionRows.add(new Row(id != null ? id : entry.getKey().getClass().getSimpleName(), null, entry.getValue()));
+    }
+    actionRows.sort(Comparator.comparingLong(Row::getCount).reversed());
+    rows.addAll(actionRows);
+    return rows;
+  }
+
+  @NotNull
+  public String toCsv() {
+    final StringBuilder res = new StringBuilder("name,mode,count,p50_ns,p99_ns,max_ns\n");
+    for (Row row : getRows()) {
+      res.append(row.getName()).append(',')
+        .append(row.getMode() != null ? row.getMode().name() : "").append(',')
+        .append(row.getCount()).append(',')
+        .append(row.getP50()).append(',')
+        .append(row.getP99()).append(',')
+        .append(row.getMax()).append('\n');
+    }
+    return res.toString();
+  }
+
+  @NotNull
+  public String toJson() {
+    final StringBuilder res = new StringBuilder("[");
+    boolean first = true;
+    for (Row row : getRows()) {
+      res.append(first ? "\n" : ",\n");
+      first = false;
+      res.append("  {\"name\": \"").append(row.getName()).append("\", \"mode\": ")
+        .append(row.getMode() != null ? "\"" + row.getMode().name() + "\"" : "null")
+        .append(", \"count\": ").append(row.getCount())
+        .append(", \"p50_ns\": ").append(row.getP50())
+        .append(", \"p99_ns\": ").append(row.getP99())
+        .append(", \"max_ns\": ").append(row.getMax()).append('}');
+    }
+    res.append("\n]\n");
+    return res.toString();
+  }
+
+  /**
+   * A snapshot of a single histogram, either of a stage in a mode or of an action.
+   */
+  public static class Row {
+    @NotNull private final String name;
+    @Nullable private final CommandState.Mode mode;
+    private final long count;
+    private final long p50;
+    private final long p99;
+    private final long max;
+
+    Row(@NotNull String name, @Nullable CommandState.Mode mode, @NotNull LatencyHistogram histogram) {
+      this.name = name;
+      this.mode = mode;
+      count = histogram.getCount();
+      p50 = histogram.getPercentile(50);
+      p99 = histogram.getPercentile(99);
+      max = histogram.getMax();
+    }
+
+    @NotNull
+    public String getName() {
+      return name;
+    }
+
+    @Nullable
+    public CommandState.Mode getMode() {
+      return mode;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getP50() {
+      return p50;
+    }
+
+    public long getP99() {
+      return p99;
+    }
+
+    public long getMax() {
+      return max;
+    }
+  }
+}
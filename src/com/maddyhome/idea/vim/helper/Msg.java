@@ -70,4 +70,7 @@ public interface Msg {
   String e_patnotf2 = "e_patnotf2";
   String unkopt = "unkopt";
   String e_invarg = "e_invarg";
+  String e_interr = "e_interr";
+  String E484 = "E484";
+  String E223 = "E223";
 }
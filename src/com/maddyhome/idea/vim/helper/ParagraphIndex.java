@@ -0,0 +1,253 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.helper;
+
+import com.intellij.openapi.editor.Document;
+import com.intellij.openapi.editor.event.DocumentAdapter;
+import com.intellij.openapi.editor.event.DocumentEvent;
+import com.intellij.openapi.util.Key;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Index of the runs of empty lines of a document, used to find paragraph boundaries without checking every line.
+ * <p>
+ * The runs are kept for empty lines and for lines with only whitespace separately. A change only needs the lines it
+ * touches to be checked again.
+ */
+public class ParagraphIndex {
+  /**
+   * Skips the empty lines starting with the supplied line
+   *
+   * @param document    The document to search in
+   * @param line        The starting line
+   * @param dir         The direction to move, -1 is backward, 1 is forward
+   * @param maxline     The number of lines in the editor
+   * @param allowBlanks If true then lines with only whitespace are empty too
+   * @return The first line that isn't empty, -1 or maxline if all the lines up to the document bounds are empty
+   */
+  public static int skipEmptyLines(@NotNull Document document, int line, int dir, int maxline, boolean allowBlanks) {
+    if (line < 0 || line >= maxline) {
+      return line;
+    }
+    final Runs runs = getIndex(document).getRuns(document, allowBlanks);
+    final int i = runs.indexOf(line);
+    if (i < 0 || runs.ends[i] < line) {
+      return line;
+    }
+    return dir > 0 ? Math.min(runs.ends[i] + 1, maxline) : runs.starts[i] - 1;
+  }
+
+  /**
+   * Finds the nearest empty line after the supplied line
+   *
+   * @param document    The document to search in
+   * @param line        The line to start after
+   * @param dir         The direction to search, -1 is backward, 1 is forward
+   * @param maxline     The number of lines in the editor
+   * @param allowBlanks If true then lines with only whitespace are empty too
+   * @return The empty line, -1 if there is none
+   */
+  public static int findEmptyLine(@NotNull Document document, int line, int dir, int maxline, boolean allowBlanks) {
+    final Runs runs = getIndex(document).getRuns(document, allowBlanks);
+    final int i = runs.indexOf(line);
+    if (dir > 0) {
+      if (i >= 0 && runs.ends[i] > line) {
+        return line + 1 < maxline ? line + 1 : -1;
+      }
+      return i + 1 < runs.size && runs.starts[i + 1] < maxline ? runs.starts[i + 1] : -1;
+    }
+    if (i >= 0 && runs.starts[i] < line) {
+      return Math.min(runs.ends[i], line - 1);
+    }
+    return i > 0 ? runs.ends[i - 1] : -1;
+  }
+
+  /**
+   * Keeps the indexes of the documents up to date with their changes
+   */
+  public static class DocumentUpdater extends DocumentAdapter {
+    @Override
+    public void documentChanged(@NotNull DocumentEvent event) {
+      final Document document = event.getDocument();
+      final ParagraphIndex index = document.getUserData(INDEX);
+      if (index == null) {
+        return;
+      }
+      if (index.modificationStamp != event.getOldTimeStamp()) {
+        document.putUserData(INDEX, null);
+        return;
+      }
+
+      final int firstLine = document.getLineNumber(event.getOffset());
+      final int lastLine = document.getLineNumber(event.getOffset() + event.getNewLength());
+      final int delta = document.getLineCount() - index.lineCount;
+      if (index.lines != null) {
+        index.lines.update(document, false, firstLine, lastLine, delta);
+      }
+      if (index.blankLines != null) {
+        index.blankLines.update(document, true, firstLine, lastLine, delta);
+      }
+      index.lineCount = document.getLineCount();
+      index.modificationStamp = document.getModificationStamp();
+    }
+  }
+
+  @NotNull
+  private static ParagraphIndex getIndex(@NotNull Document document) {
+    ParagraphIndex index = document.getUserData(INDEX);
+    if (index == null || index.modificationStamp != document.getModificationStamp()) {
+      index = new ParagraphIndex(document);
+      document.putUserData(INDEX, index);
+    }
+    return index;
+  }
+
+  private ParagraphIndex(@NotNull Document document) {
+    modificationStamp = document.getModificationStamp();
+    lineCount = document.getLineCount();
+  }
+
+  @NotNull
+  private Runs getRuns(@NotNull Document document, boolean allowBlanks) {
+    Runs runs = allowBlanks ? blankLines : lines;
+    if (runs == null) {
+      runs = new Runs();
+      runs.scan(document, allowBlanks, 0, document.getLineCount() - 1);
+      if (allowBlanks) {
+        blankLines = runs;
+      }
+      else {
+        lines = runs;
+      }
+    }
+    return runs;
+  }
+
+  /**
+   * Checks the line the same way as {@link EditorHelper#isLineEmpty(com.intellij.openapi.editor.Editor, int, boolean)}
+   */
+  private static boolean isLineEmpty(@NotNull CharSequence chars, int offset, boolean allowBlanks) {
+    if (offset >= chars.length() || chars.charAt(offset) == '\n') {
+      return true;
+    }
+    else if (allowBlanks) {
+      for (; offset < chars.length(); offset++) {
+        if (chars.charAt(offset) == '\n') {
+          return true;
+        }
+        else if (!Character.isWhitespace(chars.charAt(offset))) {
+          return false;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * The runs of empty lines in the order of their lines, the first and the last line of each run
+   */
+  private static class Runs {
+    /**
+     * Adds the runs of empty lines between the lines
+     */
+    void scan(@NotNull Document document, boolean allowBlanks, int firstLine, int lastLine) {
+      final CharSequence chars = document.getCharsSequence();
+      int start = -1;
+      for (int line = firstLine; line <= lastLine; line++) {
+        if (isLineEmpty(chars, document.getLineStartOffset(line), allowBlanks)) {
+          if (start < 0) {
+            start = line;
+          }
+        }
+        else if (start >= 0) {
+          add(start, line - 1);
+          start = -1;
+        }
+      }
+      if (start >= 0) {
+        add(start, lastLine);
+      }
+    }
+
+    /**
+     * Checks the changed lines again and moves the following runs by the change in the number of lines
+     */
+    void update(@NotNull Document document, boolean allowBlanks, int firstLine, int lastLine, int delta) {
+      // The runs next to the changed lines may join with them
+      int from = indexOf(firstLine - 1);
+      if (from < 0 || ends[from] < firstLine - 1) {
+        from++;
+      }
+      int to = indexOf(lastLine - delta + 1) + 1;
+      final int scanStart = from < to ? Math.min(firstLine, starts[from]) : firstLine;
+      final int scanEnd = from < to ? Math.max(lastLine, ends[to - 1] + delta) : lastLine;
+
+      final Runs scanned = new Runs();
+      scanned.scan(document, allowBlanks, scanStart, Math.min(scanEnd, document.getLineCount() - 1));
+
+      final int tail = size - to;
+      final int newSize = from + scanned.size + tail;
+      if (newSize > starts.length) {
+        starts = Arrays.copyOf(starts, Math.max(newSize, starts.length * 2));
+        ends = Arrays.copyOf(ends, starts.length);
+      }
+      System.arraycopy(starts, to, starts, from + scanned.size, tail);
+      System.arraycopy(ends, to, ends, from + scanned.size, tail);
+      System.arraycopy(scanned.starts, 0, starts, from, scanned.size);
+      System.arraycopy(scanned.ends, 0, ends, from, scanned.size);
+      for (int i = from + scanned.size; i < newSize; i++) {
+        starts[i] += delta;
+        ends[i] += delta;
+      }
+      size = newSize;
+    }
+
+    /**
+     * Gets the index of the last run starting at or before the line, -1 if there is none
+     */
+    int indexOf(int line) {
+      final int i = Arrays.binarySearch(starts, 0, size, line);
+      return i >= 0 ? i : -i - 2;
+    }
+
+    private void add(int start, int end) {
+      if (size == starts.length) {
+        starts = Arrays.copyOf(starts, size * 2);
+        ends = Arrays.copyOf(ends, size * 2);
+      }
+      starts[size] = start;
+      ends[size] = end;
+      size++;
+    }
+
+    @NotNull private int[] starts = new int[16];
+    @NotNull private int[] ends = new int[16];
+    private int size;
+  }
+
+  private long modificationStamp;
+  private int lineCount;
+  @Nullable private Runs lines;
+  @Nullable private Runs blankLines;
+
+  private static final Key<ParagraphIndex> INDEX = new Key<>("paragraphIndex");
+}
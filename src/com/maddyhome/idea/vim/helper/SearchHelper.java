@@ -18,13 +18,13 @@
 
 package com.maddyhome.idea.vim.helper;
 
-import com.google.common.collect.Lists;
 import com.intellij.lang.CodeDocumentationAwareCommenter;
 import com.intellij.lang.Commenter;
 import com.intellij.lang.Language;
 import com.intellij.lang.LanguageCommenters;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.Document;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.text.StringUtil;
@@ -40,9 +40,11 @@ import com.maddyhome.idea.vim.option.Options;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 /**
  * Helper methods for searching text
@@ -95,7 +97,6 @@ public class SearchHelper {
   }
 
   public static int findUnmatchedBlock(@NotNull Editor editor, @NotNull Caret caret, char type, int count) {
-    CharSequence chars = editor.getDocument().getCharsSequence();
     int pos = caret.getOffset();
     int loc = blockChars.indexOf(type);
     // What direction should we go now (-1 is backward, 1 is forward)
@@ -104,7 +105,7 @@ public class SearchHelper {
     char match = blockChars.charAt(loc);
     char found = blockChars.charAt(loc - dir);
 
-    return findBlockLocation(chars, found, match, dir, pos, count);
+    return findBlockLocation(editor.getDocument(), found, match, dir, pos, count);
   }
 
   @Nullable
@@ -148,9 +149,9 @@ public class SearchHelper {
     }
 
     if (!startPosInStringFound) {
-      bstart = findBlockLocation(chars, close, type, -1, pos, count);
+      bstart = findBlockLocation(editor.getDocument(), close, type, -1, pos, count);
       if (bstart != -1) {
-        bend = findBlockLocation(chars, type, close, 1, bstart + 1, 1);
+        bend = findBlockLocation(editor.getDocument(), type, close, 1, bstart + 1, 1);
       }
     }
 
@@ -259,7 +260,7 @@ public class SearchHelper {
       // Which character did we find and which should we now search for
       char found = getPairChars().charAt(loc);
       char match = getPairChars().charAt(loc + dir);
-      res = findBlockLocation(chars, found, match, dir, pos, 1);
+      res = findBlockLocation(editor.getDocument(), found, match, dir, pos, 1);
     }
 
     return res;
@@ -279,6 +280,13 @@ public class SearchHelper {
     return -1;
   }
 
+  private static int findBlockLocation(@NotNull Document document, char found, char match, int dir, int pos, int cnt) {
+    if (BracketIndex.isIndexed(found, match)) {
+      return BracketIndex.findBlockLocation(document, found, match, dir, pos, cnt);
+    }
+    return findBlockLocation(document.getCharsSequence(), found, match, dir, pos, cnt);
+  }
+
   private static int findBlockLocation(@NotNull CharSequence chars, char found, char match, int dir, int pos, int cnt) {
     int res = -1;
     final int inCheckPos = dir < 0 && pos > 0 ? pos - 1 : pos;
@@ -380,82 +388,136 @@ public class SearchHelper {
     return -1;
   }
 
+  /**
+   * Finds the count-th tag block around the cursor.
+   *
+   * The text before the cursor is scanned back once to find the opening tags that aren't closed before the cursor.
+   * Then the text after the cursor is scanned once for the closing tags of these opening tags, skipping the blocks
+   * that start after the cursor. Tags are matched by name only, so an unclosed tag such as &lt;br&gt; is just never
+   * closed.
+   */
   @Nullable
   public static TextRange findBlockTagRange(@NotNull Editor editor, @NotNull Caret caret, int count, boolean isOuter) {
-    final int cursorOffset = caret.getOffset();
-    int pos = cursorOffset;
-    int currentCount = count;
     final CharSequence sequence = editor.getDocument().getCharsSequence();
-    while (true) {
-      final Pair<TextRange, String> closingTagResult = findClosingTag(sequence, pos);
-      if (closingTagResult == null) {
-        return null;
+    final int cursorOffset = caret.getOffset();
+    // The opening tags that aren't closed before the cursor by name, the innermost ones first
+    final Map<String, Deque<TextRange>> openTags = new HashMap<>();
+    final Map<String, Integer> closedTags = new HashMap<>();
+    int openTagCount = 0;
+    int forwardPos = cursorOffset + 1;
+    int openBracketPos = Math.min(cursorOffset + 1, sequence.length());
+    while (openBracketPos > 0) {
+      openBracketPos = StringUtil.lastIndexOf(sequence, '<', 0, openBracketPos);
+      if (openBracketPos < 0) {
+        break;
       }
-      final TextRange closingTagTextRange = closingTagResult.getFirst();
-      final String tagName = closingTagResult.getSecond();
-      final TextRange openingTagTextRange = findOpeningTag(sequence, closingTagTextRange.getStartOffset(), tagName);
-      if (openingTagTextRange != null && openingTagTextRange.getStartOffset() <= cursorOffset && --currentCount == 0) {
-        if (isOuter) {
-          return new TextRange(openingTagTextRange.getStartOffset(), closingTagTextRange.getEndOffset());
+      final int closeBracketPos = findTagEnd(sequence, openBracketPos);
+      final String tagName = closeBracketPos >= 0 ? getTagName(sequence, openBracketPos, closeBracketPos) : null;
+      if (tagName == null) {
+        continue;
+      }
+      if (sequence.charAt(openBracketPos + 1) != '/') {
+        final int closed = closedTags.getOrDefault(tagName, 0);
+        if (closed > 0) {
+          closedTags.put(tagName, closed - 1);
         }
         else {
-          return new TextRange(openingTagTextRange.getEndOffset() + 1, closingTagTextRange.getStartOffset() - 1);
+          openTags.computeIfAbsent(tagName, k -> new ArrayDeque<>()).addLast(new TextRange(openBracketPos,
+                                                                                            closeBracketPos));
+          openTagCount++;
         }
       }
+      else if (closeBracketPos >= cursorOffset) {
+        // The closing tag under the cursor closes one of the open tags
+        forwardPos = openBracketPos;
+      }
       else {
-        pos = closingTagTextRange.getEndOffset() + 1;
+        closedTags.merge(tagName, 1, Integer::sum);
       }
     }
-  }
 
-  @Nullable
-  private static TextRange findOpeningTag(@NotNull CharSequence sequence, int position, @NotNull String tagName) {
-    final String tagBeginning = "<" + tagName;
-    final Pattern pattern = Pattern.compile(Pattern.quote(tagBeginning), Pattern.CASE_INSENSITIVE);
-    final Matcher matcher = pattern.matcher(sequence.subSequence(0, position));
-    final List<Integer> possibleBeginnings = Lists.newArrayList();
-    while (matcher.find()) {
-      possibleBeginnings.add(matcher.start());
-    }
-    final List<Integer> reversedBeginnings = Lists.reverse(possibleBeginnings);
-    for (int openingTagPos : reversedBeginnings) {
-      final int openingTagEndPos = openingTagPos + tagBeginning.length();
-      final int closeBracketPos = StringUtil.indexOf(sequence, '>', openingTagEndPos);
-      if (closeBracketPos > 0 && (closeBracketPos == openingTagEndPos || sequence.charAt(openingTagEndPos) == ' ')) {
-        return new TextRange(openingTagPos, closeBracketPos);
+    final Map<String, Integer> nestedTags = new HashMap<>();
+    int currentCount = count;
+    openBracketPos = forwardPos;
+    while (openTagCount > 0) {
+      openBracketPos = StringUtil.indexOf(sequence, '<', openBracketPos);
+      if (openBracketPos < 0) {
+        break;
+      }
+      final int closeBracketPos = findTagEnd(sequence, openBracketPos);
+      final String tagName = closeBracketPos >= 0 ? getTagName(sequence, openBracketPos, closeBracketPos) : null;
+      if (tagName != null) {
+        final int nested = nestedTags.getOrDefault(tagName, 0);
+        if (sequence.charAt(openBracketPos + 1) != '/') {
+          nestedTags.put(tagName, nested + 1);
+        }
+        else if (nested > 0) {
+          nestedTags.put(tagName, nested - 1);
+        }
+        else {
+          final Deque<TextRange> tags = openTags.get(tagName);
+          if (tags != null && !tags.isEmpty()) {
+            final TextRange openingTag = tags.removeFirst();
+            openTagCount--;
+            if (--currentCount == 0) {
+              if (isOuter) {
+                return new TextRange(openingTag.getStartOffset(), closeBracketPos);
+              }
+              else {
+                return new TextRange(openingTag.getEndOffset() + 1, openBracketPos - 1);
+              }
+            }
+          }
+        }
       }
+      openBracketPos++;
     }
     return null;
   }
 
-  @Nullable
-  private static Pair<TextRange, String> findClosingTag(@NotNull CharSequence sequence, int pos) {
-    int closeBracketPos = pos;
-    int openBracketPos;
-    while (closeBracketPos < sequence.length()) {
-      closeBracketPos = StringUtil.indexOf(sequence, '>', closeBracketPos);
-      if (closeBracketPos < 0) {
-        return null;
+  /**
+   * Finds the '&gt;' ending the tag, -1 if another '&lt;' comes first
+   */
+  private static int findTagEnd(@NotNull CharSequence sequence, int openBracketPos) {
+    for (int i = openBracketPos + 1; i < sequence.length(); i++) {
+      final char c = sequence.charAt(i);
+      if (c == '>') {
+        return i;
       }
-      openBracketPos = closeBracketPos - 1;
-      while (openBracketPos >= 0) {
-        openBracketPos = StringUtil.lastIndexOf(sequence, '<', 0, openBracketPos);
-        if (openBracketPos >= 0 &&
-            openBracketPos + 1 < sequence.length() &&
-            sequence.charAt(openBracketPos + 1) == '/') {
-          final String tagName = String.valueOf(sequence.subSequence(openBracketPos + "</".length(), closeBracketPos));
-          if (tagName.length() > 0 && tagName.charAt(0) != ' ') {
-            TextRange textRange = new TextRange(openBracketPos, closeBracketPos);
-            return Pair.create(textRange, tagName);
-          }
-        }
-        openBracketPos--;
+      if (c == '<') {
+        return -1;
       }
-      closeBracketPos++;
     }
-    return null;
+    return -1;
   }
 
+  /**
+   * Gets the lower case name of the opening or closing tag, null if it isn't a tag that can be matched
+   */
+  @Nullable
+  private static String getTagName(@NotNull CharSequence sequence, int openBracketPos, int closeBracketPos) {
+    final int nameStart;
+    int nameEnd;
+    if (sequence.charAt(openBracketPos + 1) == '/') {
+      nameStart = openBracketPos + 2;
+      nameEnd = closeBracketPos;
+    }
+    // Self-closing tags don't open a block
+    else if (sequence.charAt(closeBracketPos - 1) == '/') {
+      return null;
+    }
+    else {
+      nameStart = openBracketPos + 1;
+      nameEnd = nameStart;
+      while (nameEnd < closeBracketPos && !Character.isWhitespace(sequence.charAt(nameEnd))) {
+        nameEnd++;
+      }
+    }
+    if (nameStart >= nameEnd || sequence.charAt(nameStart) == ' ') {
+      return null;
+    }
+    return StringUtil.toLowerCase(sequence.subSequence(nameStart, nameEnd).toString());
+  }
 
   @Nullable
   public static TextRange findBlockQuoteInLineRange(@NotNull Editor editor, @NotNull Caret caret, char quote,
@@ -718,26 +780,21 @@ public class SearchHelper {
       type = CharacterHelper.charType(chars.charAt(pos - 1), bigWord);
     }
 
-    pos += step;
-    while (pos >= 0 && pos < size && !found) {
-      CharacterHelper.CharacterType newType = CharacterHelper.charType(chars.charAt(pos), bigWord);
-      if (newType != type) {
-        if (newType == CharacterHelper.CharacterType.WHITESPACE && step >= 0 && !spaceWords) {
-          pos = skipSpace(chars, pos, step, size);
-          res = pos;
-        }
-        else if (step < 0) {
-          res = pos + 1;
-        }
-        else {
-          res = pos;
-        }
-
-        type = CharacterHelper.charType(chars.charAt(res), bigWord);
-        found = true;
+    pos = skipCharType(chars, pos + step, step, size, type, bigWord);
+    if (pos >= 0 && pos < size) {
+      final CharacterHelper.CharacterType newType = CharacterHelper.charType(chars.charAt(pos), bigWord);
+      if (newType == CharacterHelper.CharacterType.WHITESPACE && step >= 0 && !spaceWords) {
+        pos = skipSpace(chars, pos, step, size);
+        res = pos;
+      }
+      else if (step < 0) {
+        res = pos + 1;
+      }
+      else {
+        res = pos;
       }
 
-      pos += step;
+      found = true;
     }
 
     if (found) {
@@ -913,9 +970,7 @@ public class SearchHelper {
       CharacterHelper.CharacterType type = CharacterHelper.charType(chars.charAt(start), false);
       if (type == types[i]) {
         // Search back for start of word
-        while (start > 0 && CharacterHelper.charType(chars.charAt(start - 1), false) == types[i]) {
-          start--;
-        }
+        start = skipCharType(chars, start - 1, -1, stop, types[i], false) + 1;
       }
       else {
         // Search forward for start of word
@@ -1065,16 +1120,10 @@ public class SearchHelper {
     }
 
     if (goForward && anyNonWhitespace(editor, end, 1)) {
-      while (end < max &&
-             CharacterHelper.charType(chars.charAt(end + 1), false) == CharacterHelper.CharacterType.WHITESPACE) {
-        end++;
-      }
+      end = skipCharType(chars, end + 1, 1, max + 1, CharacterHelper.CharacterType.WHITESPACE, false) - 1;
     }
     if (goBack && anyNonWhitespace(editor, start, -1)) {
-      while (start > min &&
-             CharacterHelper.charType(chars.charAt(start - 1), false) == CharacterHelper.CharacterType.WHITESPACE) {
-        start--;
-      }
+      start = skipCharType(chars, start - 1, -1, max + 1, CharacterHelper.CharacterType.WHITESPACE, false) + 1;
     }
 
     if (logger.isDebugEnabled()) {
@@ -1152,25 +1201,21 @@ public class SearchHelper {
       type = CharacterHelper.charType(chars.charAt(pos + 1), bigWord);
     }
 
-    pos += step;
-    while (pos >= 0 && pos < size && !found) {
-      CharacterHelper.CharacterType newType = CharacterHelper.charType(chars.charAt(pos), bigWord);
-      if (newType != type) {
-        if (step >= 0) {
-          res = pos - 1;
-        }
-        else if (newType == CharacterHelper.CharacterType.WHITESPACE && step < 0 && !spaceWords) {
-          pos = skipSpace(chars, pos, step, size);
-          res = pos;
-        }
-        else {
-          res = pos;
-        }
-
-        found = true;
+    pos = skipCharType(chars, pos + step, step, size, type, bigWord);
+    if (pos >= 0 && pos < size) {
+      final CharacterHelper.CharacterType newType = CharacterHelper.charType(chars.charAt(pos), bigWord);
+      if (step >= 0) {
+        res = pos - 1;
+      }
+      else if (newType == CharacterHelper.CharacterType.WHITESPACE && !spaceWords) {
+        pos = skipSpace(chars, pos, step, size);
+        res = pos;
+      }
+      else {
+        res = pos;
       }
 
-      pos += step;
+      found = true;
     }
 
     if (found) {
@@ -1190,6 +1235,26 @@ public class SearchHelper {
     return res;
   }
 
+  /**
+   * Skips the run of characters of the same type starting with the supplied position.
+   *
+   * @param chars    The text as a character array
+   * @param offset   The starting position
+   * @param step     The direction to move
+   * @param size     The size of the document
+   * @param type     The type of the characters to skip
+   * @param bigWord  If true then punctuation is treated as keyword characters
+   * @return The position of the first character of another type, -1 or size if the run reaches the document bounds
+   */
+  private static int skipCharType(@NotNull CharSequence chars, int offset, int step, int size,
+                                  @NotNull CharacterHelper.CharacterType type, boolean bigWord) {
+    while (offset >= 0 && offset < size && CharacterHelper.charType(chars.charAt(offset), bigWord) == type) {
+      offset += step;
+    }
+
+    return offset;
+  }
+
   /**
    * Skip whitespace starting with the supplied position.
    * <p>
@@ -1326,7 +1391,7 @@ public class SearchHelper {
                                        boolean countCurrent, boolean multiple) {
     // Save off the next paragraph since a paragraph is a valid sentence.
     int lline = editor.offsetToLogicalPosition(start).line;
-    int np = findNextParagraph(editor, lline, dir, false, multiple);
+    int np = findNextParagraph(editor, lline, dir, false);
 
     int end;
     if (chars.charAt(start) == '\n' && !countCurrent) {
@@ -1419,7 +1484,7 @@ public class SearchHelper {
 
     // Save off the next paragraph since a paragraph is a valid sentence.
     int lline = editor.offsetToLogicalPosition(start).line;
-    int np = findNextParagraph(editor, lline, dir, false, multiple);
+    int np = findNextParagraph(editor, lline, dir, false);
 
     // Sections are also end-of-sentence markers. However, { and } in column 1 don't count.
     // Since our section implementation only supports these and form-feed chars, we'll just
@@ -1746,9 +1811,8 @@ public class SearchHelper {
     return findNextParagraph(editor, editor.getCaretModel().getPrimaryCaret(), count, allowBlanks);
   }
 
-  private static int findNextParagraph(@NotNull Editor editor, int lline, int dir, boolean allowBlanks,
-                                       boolean skipLines) {
-    int line = findNextParagraphLine(editor, lline, dir, allowBlanks, skipLines);
+  private static int findNextParagraph(@NotNull Editor editor, int lline, int dir, boolean allowBlanks) {
+    int line = findNextParagraphLine(editor, lline, dir, allowBlanks);
 
     if (line >= 0) {
       return EditorHelper.getLineStartOffset(editor, line);
@@ -1764,12 +1828,11 @@ public class SearchHelper {
 
     int maxline = EditorHelper.getLineCount(editor);
     int dir = count > 0 ? 1 : -1;
-    boolean skipLines = count > 1;
     count = Math.abs(count);
     int total = count;
 
     for (; count > 0 && line >= 0; count--) {
-      line = findNextParagraphLine(editor, line, dir, allowBlanks, skipLines);
+      line = findNextParagraphLine(editor, line, dir, allowBlanks);
     }
 
     if (total == 1 && line < 0) {
@@ -1789,37 +1852,16 @@ public class SearchHelper {
     return findNextParagraphLine(editor, editor.getCaretModel().getPrimaryCaret(), count, allowBlanks);
   }
 
-  private static int findNextParagraphLine(@NotNull Editor editor, int line, int dir, boolean allowBlanks,
-                                           boolean skipLines) {
-    int maxline = EditorHelper.getLineCount(editor);
-    int res = -1;
-
-    line = skipEmptyLines(editor, line, dir, allowBlanks);
-    while (line >= 0 && line < maxline && res == -1) {
-      if (EditorHelper.isLineEmpty(editor, line, allowBlanks)) {
-        res = line;
-        if (skipLines) {
-          line = skipEmptyLines(editor, line, dir, allowBlanks);
-        }
-      }
-
-      line += dir;
-    }
-
-    return res;
-  }
-
-  private static int skipEmptyLines(@NotNull Editor editor, int line, int dir, boolean allowBlanks) {
-    int maxline = EditorHelper.getLineCount(editor);
-    while (line >= 0 && line < maxline) {
-      if (!EditorHelper.isLineEmpty(editor, line, allowBlanks)) {
-        return line;
-      }
+  private static int findNextParagraphLine(@NotNull Editor editor, int line, int dir, boolean allowBlanks) {
+    final Document document = editor.getDocument();
+    final int maxline = EditorHelper.getLineCount(editor);
 
-      line += dir;
+    line = ParagraphIndex.skipEmptyLines(document, line, dir, maxline, allowBlanks);
+    if (line < 0 || line >= maxline) {
+      return -1;
     }
 
-    return line;
+    return ParagraphIndex.findEmptyLine(document, line, dir, maxline, allowBlanks);
   }
 
   @Nullable
@@ -1883,7 +1925,7 @@ public class SearchHelper {
       int which = EditorHelper.isLineEmpty(editor, sline, true) ? 0 : 1;
       for (int i = 0; i < count; i++) {
         if (which % 2 == 1) {
-          eline = findNextParagraphLine(editor, eline, 1, true, false) - 1;
+          eline = findNextParagraphLine(editor, eline, 1, true) - 1;
           if (eline < 0) {
             if (i == count - 1) {
               eline = maxline - 1;
@@ -1945,7 +1987,7 @@ public class SearchHelper {
   @NotNull
   private static String getPairChars() {
     if (pairsChars == null) {
-      ListOption lo = (ListOption)Options.getInstance().getOption("matchpairs");
+      ListOption lo = Options.getInstance().matchpairs;
       pairsChars = parseOption(lo);
 
       lo.addOptionChangeListener(new OptionChangeListener() {
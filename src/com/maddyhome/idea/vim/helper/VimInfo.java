@@ -0,0 +1,152 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.maddyhome.idea.vim.helper;
+
+import com.intellij.openapi.application.PathManager;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.JDOMUtil;
+import com.intellij.openapi.util.io.FileUtil;
+import com.maddyhome.idea.vim.option.Options;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The viminfo file keeps registers, marks, search state and history between sessions.
+ *
+ * It is stored apart from the plugin settings, so the settings file isn't rewritten whenever a register changes. The
+ * file is written on a pooled thread when the settings are saved and only if the groups it keeps have changed since.
+ * The amount of data written is limited by the 'viminfo' option.
+ */
+public class VimInfo {
+  public static final String ROOT = "viminfo";
+
+  private static final int VERSION = 1;
+  private static final String FILE_NAME = "vim_info.xml";
+
+  private static final Logger logger = Logger.getInstance(VimInfo.class.getName());
+
+  private VimInfo() {
+  }
+
+  /**
+   * Gets the maximum number of files the marks are saved for, set with the "'" parameter.
+   */
+  public static int getMaxMarkedFiles() {
+    return getValue('\'', 0);
+  }
+
+  /**
+   * Gets the maximum number of lines saved for each register, set with the "<" parameter. Negative if unlimited.
+   */
+  public static int getMaxRegisterLines() {
+    final int lines = getValue('<', -1);
+    // '"' is the old name of '<'
+    return lines >= 0 ? lines : getValue('"', -1);
+  }
+
+  /**
+   * Gets the maximum number of characters in a saved register, set in Kbyte with the "s" parameter. Negative if
+   * unlimited.
+   */
+  public static int getMaxItemSize() {
+    final int size = getValue('s', -1);
+    return size >= 0 ? size * 1024 : -1;
+  }
+
+  /**
+   * Gets the maximum number of history entries saved, set with the ":" parameter for command line history and "/" for
+   * search history.
+   *
+   * @param type          The parameter of the history
+   * @param historyLength The value of the 'history' option used if the parameter isn't set
+   */
+  public static int getMaxHistory(char type, int historyLength) {
+    return getValue(type, historyLength);
+  }
+
+  private static int getValue(char parameter, int defaultValue) {
+    final List<String> values = Options.getInstance().viminfo.values();
+    if (values != null) {
+      for (String value : values) {
+        if (value.length() > 1 && value.charAt(0) == parameter) {
+          try {
+            return Integer.parseInt(value.substring(1));
+          }
+          catch (NumberFormatException ignored) {
+          }
+        }
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * Reads the viminfo file.
+   *
+   * @return The saved data or null if there is no file or it was written by an incompatible version
+   */
+  @Nullable
+  public static Element read() {
+    final File file = getFile();
+    if (!file.isFile()) {
+      return null;
+    }
+    try {
+      final Element element = JDOMUtil.load(file);
+      final String version = element.getAttributeValue("version");
+      if (!ROOT.equals(element.getName()) || !Integer.toString(VERSION).equals(version)) {
+        logger.info("Ignoring viminfo file of version " + version);
+        return null;
+      }
+      return element;
+    }
+    catch (IOException | JDOMException e) {
+      logger.warn("Cannot read viminfo file " + file, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the viminfo file.
+   *
+   * @param element The data to save, created with the {@link #ROOT} name
+   */
+  public static void write(@NotNull Element element) {
+    element.setAttribute("version", Integer.toString(VERSION));
+    final File file = getFile();
+    try {
+      FileUtil.createParentDirs(file);
+      JDOMUtil.write(element, file, "\n");
+    }
+    catch (IOException e) {
+      logger.warn("Cannot write viminfo file " + file, e);
+    }
+  }
+
+  @NotNull
+  private static File getFile() {
+    return new File(PathManager.getOptionsPath(), FILE_NAME);
+  }
+}
@@ -57,14 +57,22 @@ public class BranchNode extends ParentNode {
   public Node getChild(@NotNull Object key) {
     Node res = super.getChild(key);
     if (res == null) {
-      res = children.get(ARGUMENT);
+      res = argument;
     }
 
     return res;
   }
 
+  @Override
+  public void addChild(@NotNull Node child, @NotNull Object key) {
+    super.addChild(child, key);
+    if (ARGUMENT.equals(key)) {
+      argument = child;
+    }
+  }
+
   public Node getArgumentNode() {
-    return children.get(ARGUMENT);
+    return argument;
   }
 
   /**
@@ -104,4 +112,5 @@ public class BranchNode extends ParentNode {
 
   protected final KeyStroke key;
   protected final int flags;
+  @Nullable private Node argument;
 }
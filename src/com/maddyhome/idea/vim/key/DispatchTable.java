@@ -0,0 +1,114 @@
+/*
+ * IdeaVim - Vim emulator for IDEs based on the IntelliJ platform
+ * Copyright (C) 2003-2016 The IdeaVim authors
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.maddyhome.idea.vim.key;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.event.KeyEvent;
+import java.util.Map;
+
+/**
+ * Immutable lookup table for the keystroke children of a {@link ParentNode}.
+ *
+ * Typed characters without modifiers are looked up in an array indexed by the character, all the other keystrokes in
+ * a small open-addressing table keyed by their key code or character and modifiers.
+ */
+final class DispatchTable {
+  private static final int MAX_DENSE_CHAR = 256;
+  private static final long TYPED = 1L << 62;
+  private static final long RELEASE = 1L << 61;
+
+  @NotNull private final Node[] chars;
+  @NotNull private final long[] codes;
+  @NotNull private final Node[] nodes;
+  private final int mask;
+
+  DispatchTable(@NotNull Map<Object, Node> children) {
+    int maxChar = -1;
+    int others = 0;
+    for (Object key : children.keySet()) {
+      if (key instanceof KeyStroke) {
+        final KeyStroke keyStroke = (KeyStroke)key;
+        if (isDense(keyStroke)) {
+          maxChar = Math.max(maxChar, keyStroke.getKeyChar());
+        }
+        else {
+          others++;
+        }
+      }
+    }
+    chars = new Node[maxChar + 1];
+    final int capacity = Integer.highestOneBit(Math.max(others, 1) * 2 - 1) << 1;
+    codes = new long[capacity];
+    nodes = new Node[capacity];
+    mask = capacity - 1;
+    for (Map.Entry<Object, Node> entry : children.entrySet()) {
+      if (entry.getKey() instanceof KeyStroke) {
+        final KeyStroke keyStroke = (KeyStroke)entry.getKey();
+        if (isDense(keyStroke)) {
+          chars[keyStroke.getKeyChar()] = entry.getValue();
+        }
+        else {
+          final long code = code(keyStroke);
+          int i = slot(code);
+          while (nodes[i] != null) {
+            i = (i + 1) & mask;
+          }
+          codes[i] = code;
+          nodes[i] = entry.getValue();
+        }
+      }
+    }
+  }
+
+  @Nullable
+  Node get(@NotNull KeyStroke keyStroke) {
+    final char ch = keyStroke.getKeyChar();
+    if (ch < chars.length && keyStroke.getModifiers() == 0 && !keyStroke.isOnKeyRelease()) {
+      return chars[ch];
+    }
+    final long code = code(keyStroke);
+    for (int i = slot(code); nodes[i] != null; i = (i + 1) & mask) {
+      if (codes[i] == code) {
+        return nodes[i];
+      }
+    }
+    return null;
+  }
+
+  private static boolean isDense(@NotNull KeyStroke keyStroke) {
+    return keyStroke.getKeyChar() < MAX_DENSE_CHAR && keyStroke.getModifiers() == 0 && !keyStroke.isOnKeyRelease();
+  }
+
+  private static long code(@NotNull KeyStroke keyStroke) {
+    final char ch = keyStroke.getKeyChar();
+    final long modifiers = keyStroke.getModifiers() & 0xFFFFFFFFL;
+    if (ch != KeyEvent.CHAR_UNDEFINED) {
+      return TYPED | ((long)ch << 32) | modifiers;
+    }
+    return ((long)keyStroke.getKeyCode() << 32) | modifiers | (keyStroke.isOnKeyRelease() ? RELEASE : 0);
+  }
+
+  private int slot(long code) {
+    int h = (int)(code ^ (code >>> 32));
+    h *= 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+}
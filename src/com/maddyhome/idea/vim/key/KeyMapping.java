@@ -18,7 +18,6 @@
 
 package com.maddyhome.idea.vim.key;
 
-import com.google.common.collect.ImmutableList;
 import com.maddyhome.idea.vim.command.MappingMode;
 import com.maddyhome.idea.vim.extension.VimExtensionHandler;
 import org.jetbrains.annotations.NotNull;
@@ -28,66 +27,141 @@ import javax.swing.*;
 import java.util.*;
 
 /**
+ * Key mappings of a single mapping mode stored as a trie of keystrokes.
+ *
+ * Matching typed keys is done incrementally: the caller keeps the node reached by the keys typed so far and asks it
+ * for the child of the next keystroke.
+ *
  * @author vlan
  */
 public class KeyMapping implements Iterable<List<KeyStroke>> {
-  @NotNull private final Map<ImmutableList<KeyStroke>, MappingInfo> myKeys = new HashMap<ImmutableList<KeyStroke>, MappingInfo>();
-  @NotNull private final Map<ImmutableList<KeyStroke>, Integer> myPrefixes = new HashMap<ImmutableList<KeyStroke>, Integer>();
+  @NotNull private final MappingNode myRoot = new MappingNode(null, null);
 
   @NotNull
   @Override
   public Iterator<List<KeyStroke>> iterator() {
-    return new ArrayList<List<KeyStroke>>(myKeys.keySet()).iterator();
+    final List<List<KeyStroke>> result = new ArrayList<List<KeyStroke>>();
+    final Deque<MappingNode> nodes = new ArrayDeque<MappingNode>();
+    nodes.push(myRoot);
+    while (!nodes.isEmpty()) {
+      final MappingNode node = nodes.pop();
+      if (node.myInfo != null) {
+        result.add(node.myInfo.getFromKeys());
+      }
+      if (node.myChildren != null) {
+        for (MappingNode child : node.myChildren.values()) {
+          nodes.push(child);
+        }
+      }
+    }
+    return result.iterator();
+  }
+
+  /**
+   * Returns the root of the mapping trie, the starting point for matching a new key sequence.
+   */
+  @NotNull
+  public MappingNode getRoot() {
+    return myRoot;
   }
 
   @Nullable
   public MappingInfo get(@NotNull List<KeyStroke> keys) {
-    return myKeys.get(ImmutableList.copyOf(keys));
+    final MappingNode node = find(keys);
+    return node != null ? node.myInfo : null;
   }
 
   public void put(@NotNull Set<MappingMode> mappingModes, @NotNull List<KeyStroke> fromKeys,
                   @Nullable List<KeyStroke> toKeys, @Nullable VimExtensionHandler extensionHandler, boolean recursive) {
-    myKeys.put(ImmutableList.copyOf(fromKeys),
-               new MappingInfo(mappingModes, fromKeys, toKeys, extensionHandler, recursive));
-    List<KeyStroke> prefix = new ArrayList<KeyStroke>();
-    final int prefixLength = fromKeys.size() - 1;
-    for (int i = 0; i < prefixLength; i++) {
-      prefix.add(fromKeys.get(i));
-      increment(ImmutableList.copyOf(prefix));
+    MappingNode node = myRoot;
+    for (KeyStroke key : fromKeys) {
+      MappingNode child = node.getChild(key);
+      if (child == null) {
+        child = new MappingNode(node, key);
+        if (node.myChildren == null) {
+          node.myChildren = new HashMap<KeyStroke, MappingNode>(4);
+        }
+        node.myChildren.put(key, child);
+      }
+      node = child;
     }
+    node.myInfo = new MappingInfo(mappingModes, fromKeys, toKeys, extensionHandler, recursive);
   }
 
   public void delete(@NotNull List<KeyStroke> keys) {
-    myKeys.remove(ImmutableList.copyOf(keys));
-    List<KeyStroke> prefix = new ArrayList<KeyStroke>();
-    final int prefixLength = keys.size() - 1;
-    for (int i = 0; i < prefixLength; i++) {
-      prefix.add(keys.get(i));
-      decrement(ImmutableList.copyOf(prefix));
+    MappingNode node = find(keys);
+    if (node == null || node == myRoot) {
+      return;
+    }
+    node.myInfo = null;
+    while (node.myParent != null && node.myInfo == null && !node.isPrefix()) {
+      final MappingNode parent = node.myParent;
+      parent.myChildren.remove(node.myKey);
+      if (parent.myChildren.isEmpty()) {
+        parent.myChildren = null;
+      }
+      node = parent;
     }
   }
 
   public boolean isPrefix(@NotNull List<KeyStroke> keys) {
-    return myPrefixes.get(ImmutableList.copyOf(keys)) != null;
+    final MappingNode node = find(keys);
+    return node != null && node.isPrefix();
   }
 
-  private void increment(@NotNull ImmutableList<KeyStroke> prefix) {
-    Integer count = myPrefixes.get(prefix);
-    if (count == null) {
-      count = 0;
+  @Nullable
+  private MappingNode find(@NotNull List<KeyStroke> keys) {
+    MappingNode node = myRoot;
+    for (int i = 0; i < keys.size() && node != null; i++) {
+      node = node.getChild(keys.get(i));
     }
-    myPrefixes.put(prefix, count + 1);
+    return node;
   }
 
-  private void decrement(@NotNull ImmutableList<KeyStroke> prefix) {
-    final Integer count = myPrefixes.get(prefix);
-    if (count != null) {
-      if (count <= 1) {
-        myPrefixes.remove(prefix);
-      }
-      else {
-        myPrefixes.put(prefix, count - 1);
+  /**
+   * A node of the mapping trie reached by typing a sequence of keys.
+   */
+  public static final class MappingNode {
+    @Nullable private final MappingNode myParent;
+    @Nullable private final KeyStroke myKey;
+    @Nullable private Map<KeyStroke, MappingNode> myChildren;
+    @Nullable private MappingInfo myInfo;
+
+    private MappingNode(@Nullable MappingNode parent, @Nullable KeyStroke key) {
+      myParent = parent;
+      myKey = key;
+    }
+
+    @Nullable
+    public MappingNode getChild(@NotNull KeyStroke key) {
+      return myChildren != null ? myChildren.get(key) : null;
+    }
+
+    /**
+     * Returns the mapping for the keys leading to this node or null if these keys are only a prefix of other mappings.
+     */
+    @Nullable
+    public MappingInfo getMappingInfo() {
+      return myInfo;
+    }
+
+    /**
+     * Whether there are longer mappings starting with the keys leading to this node.
+     */
+    public boolean isPrefix() {
+      return myChildren != null;
+    }
+
+    /**
+     * Returns the keys leading from the root to this node.
+     */
+    @NotNull
+    public List<KeyStroke> getKeys() {
+      final LinkedList<KeyStroke> keys = new LinkedList<KeyStroke>();
+      for (MappingNode node = this; node.myKey != null; node = node.myParent) {
+        keys.addFirst(node.myKey);
       }
+      return keys;
     }
   }
 }
@@ -25,6 +25,7 @@ import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
 import java.awt.event.KeyEvent;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -37,6 +38,7 @@ public class MappingInfo implements Comparable<MappingInfo> {
   @Nullable private final List<KeyStroke> myToKeys;
   @Nullable private final VimExtensionHandler myExtensionHandler;
   private final boolean myRecursive;
+  @Nullable private boolean[] myRemapFlags;
 
   public MappingInfo(@NotNull Set<MappingMode> mappingModes, @NotNull List<KeyStroke> fromKeys,
                      @Nullable List<KeyStroke> toKeys, @Nullable VimExtensionHandler extensionHandler,
@@ -86,6 +88,44 @@ public class MappingInfo implements Comparable<MappingInfo> {
     return myRecursive;
   }
 
+  /**
+   * Returns for each of the target keys whether it may be mapped again when the mapping is expanded.
+   *
+   * The keys of a non-recursive mapping are never remapped, neither is the first key of a recursive mapping whose
+   * target starts with its own keys. The flags are computed once, a mapping is replaced when it's redefined.
+   *
+   * The keys aren't resolved to commands up front: which command a key maps to depends on the state of the key
+   * handler when it's replayed (a pending count, register, operator or argument), and each lookup is a single step
+   * in the command tree anyway.
+   */
+  @NotNull
+  public boolean[] getRemapFlags() {
+    boolean[] flags = myRemapFlags;
+    if (flags == null) {
+      flags = new boolean[myToKeys != null ? myToKeys.size() : 0];
+      if (myRecursive && myToKeys != null) {
+        Arrays.fill(flags, true);
+        if (flags.length > 0 && startsWith(myToKeys, myFromKeys)) {
+          flags[0] = false;
+        }
+      }
+      myRemapFlags = flags;
+    }
+    return flags;
+  }
+
+  private static <T> boolean startsWith(@NotNull List<T> list, @NotNull List<T> prefix) {
+    if (prefix.size() > list.size()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.size(); i++) {
+      if (!prefix.get(i).equals(list.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   private int compareKeys(@NotNull KeyStroke key1, @NotNull KeyStroke key2) {
     final char c1 = key1.getKeyChar();
     final char c2 = key2.getKeyChar();
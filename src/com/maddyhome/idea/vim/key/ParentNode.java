@@ -21,6 +21,7 @@ package com.maddyhome.idea.vim.key;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import javax.swing.*;
 import java.util.HashMap;
 
 /**
@@ -35,6 +36,7 @@ public abstract class ParentNode implements Node {
    */
   public void addChild(@NotNull Node child, @NotNull Object key) {
     children.put(key, child);
+    table = null;
   }
 
   /**
@@ -45,8 +47,26 @@ public abstract class ParentNode implements Node {
    */
   @Nullable
   public Node getChild(@NotNull Object key) {
+    final DispatchTable res = table;
+    if (res != null && key instanceof KeyStroke) {
+      return res.get((KeyStroke)key);
+    }
     return children.get(key);
   }
 
+  /**
+   * Builds the lookup tables of this node and all its descendants. Until then, and after a child is added, the
+   * children are looked up in the map they're registered in.
+   */
+  public void freeze() {
+    for (Node child : children.values()) {
+      if (child instanceof ParentNode) {
+        ((ParentNode)child).freeze();
+      }
+    }
+    table = new DispatchTable(children);
+  }
+
   @NotNull protected final HashMap<Object, Node> children = new HashMap<Object, Node>();
+  @Nullable private DispatchTable table;
 }
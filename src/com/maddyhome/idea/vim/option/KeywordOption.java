@@ -13,7 +13,9 @@ public final class KeywordOption extends ListOption {
   @NotNull private final Pattern validationPattern;
 
   // KeywordSpecs are the option values in reverse order
-  @NotNull private List<KeywordSpec> keywordSpecs = new ArrayList<>();
+  @NotNull private volatile List<KeywordSpec> keywordSpecs = new ArrayList<>();
+  // The keyword characters below 0x100, compiled from the specs
+  @NotNull private volatile long[] keywordBits = new long[4];
 
   public KeywordOption(@NotNull String name, @NotNull String abbrev, @NotNull String[] defaultValue) {
     super(name, abbrev, defaultValue,
@@ -29,8 +31,12 @@ public final class KeywordOption extends ListOption {
     if (vals == null || specs == null || value == null) {
       return false;
     }
-    value.addAll(vals);
-    keywordSpecs.addAll(0, specs);
+    final List<String> newValue = new ArrayList<>(value);
+    newValue.addAll(vals);
+    final List<KeywordSpec> newSpecs = new ArrayList<>(keywordSpecs);
+    newSpecs.addAll(0, specs);
+    value = newValue;
+    setKeywordSpecs(newSpecs);
     fireOptionChangeEvent();
     return true;
   }
@@ -42,8 +48,12 @@ public final class KeywordOption extends ListOption {
     if (vals == null || specs == null || value == null) {
       return false;
     }
-    value.addAll(0, vals);
-    keywordSpecs.addAll(specs);
+    final List<String> newValue = new ArrayList<>(value);
+    newValue.addAll(0, vals);
+    final List<KeywordSpec> newSpecs = new ArrayList<>(keywordSpecs);
+    newSpecs.addAll(specs);
+    value = newValue;
+    setKeywordSpecs(newSpecs);
     fireOptionChangeEvent();
     return true;
   }
@@ -56,8 +66,12 @@ public final class KeywordOption extends ListOption {
     if (vals == null || specs == null || value == null) {
       return false;
     }
-    value.removeAll(vals);
-    keywordSpecs.removeAll(specs);
+    final List<String> newValue = new ArrayList<>(value);
+    newValue.removeAll(vals);
+    final List<KeywordSpec> newSpecs = new ArrayList<>(keywordSpecs);
+    newSpecs.removeAll(specs);
+    value = newValue;
+    setKeywordSpecs(newSpecs);
     fireOptionChangeEvent();
     return true;
   }
@@ -70,7 +84,7 @@ public final class KeywordOption extends ListOption {
       return false;
     }
     value = vals;
-    keywordSpecs = specs;
+    setKeywordSpecs(specs);
     fireOptionChangeEvent();
     return true;
   }
@@ -155,16 +169,30 @@ public final class KeywordOption extends ListOption {
   }
 
   public boolean isKeyword(char c) {
-    final int code = (int)c;
-    if (code >= '\u0100') {
+    if (c >= '\u0100') {
       return true;
     }
-    for (KeywordSpec spec : keywordSpecs) {
-      if (spec.contains(code)) {
-        return !spec.negate();
+    return (keywordBits[c >> 6] & (1L << c)) != 0;
+  }
+
+  /**
+   * Replaces the specs and compiles them into the bit set of keyword characters. Only the characters below 0x100
+   * depend on the option, all others are keyword characters.
+   */
+  private void setKeywordSpecs(@NotNull List<KeywordSpec> specs) {
+    final long[] bits = new long[4];
+    for (int code = 0; code < 0x100; code++) {
+      for (KeywordSpec spec : specs) {
+        if (spec.contains(code)) {
+          if (!spec.negate()) {
+            bits[code >> 6] |= 1L << code;
+          }
+          break;
+        }
       }
     }
-    return false;
+    keywordSpecs = specs;
+    keywordBits = bits;
   }
 
   private static final class KeywordSpec {
@@ -71,7 +71,8 @@ public class ListOption extends TextOption {
   }
 
   /**
-   * Gets the option's values as a list
+   * Gets the option's values as a list. The list is replaced rather than modified when the option changes, so it can
+   * be read without copying but must not be modified.
    *
    * @return The option's values
    */
@@ -151,7 +152,9 @@ public class ListOption extends TextOption {
       return false;
     }
 
-    value.addAll(vals);
+    final List<String> newValue = new ArrayList<String>(value);
+    newValue.addAll(vals);
+    value = newValue;
     fireOptionChangeEvent();
 
     return true;
@@ -162,7 +165,9 @@ public class ListOption extends TextOption {
       return false;
     }
 
-    value.addAll(0, vals);
+    final List<String> newValue = new ArrayList<String>(value);
+    newValue.addAll(0, vals);
+    value = newValue;
     fireOptionChangeEvent();
 
     return true;
@@ -173,7 +178,9 @@ public class ListOption extends TextOption {
       return false;
     }
 
-    value.removeAll(vals);
+    final List<String> newValue = new ArrayList<String>(value);
+    newValue.removeAll(vals);
+    value = newValue;
     fireOptionChangeEvent();
 
     return true;
@@ -226,6 +233,6 @@ public class ListOption extends TextOption {
   }
 
   @NotNull protected final List<String> dflt;
-  @Nullable protected List<String> value;
+  @Nullable protected volatile List<String> value;
   protected final String pattern;
 }
@@ -226,7 +226,7 @@ public class NumberOption extends TextOption {
   }
 
   private final int dflt;
-  private int value;
+  private volatile int value;
   private final int min;
   private final int max;
 }
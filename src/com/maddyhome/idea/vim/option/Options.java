@@ -41,19 +41,51 @@ public class Options {
   public static final String INCREMENTAL_SEARCH = "incsearch";
   public static final String TIMEOUT = "timeout";
   public static final String VIMINFO = "viminfo";
+  public static final String MAX_MAP_DEPTH = "maxmapdepth";
 
   /**
    * Gets the singleton instance of the options
    *
    * @return The singleton
    */
-  public synchronized static Options getInstance() {
-    if (ourInstance == null) {
-      ourInstance = new Options();
-    }
-    return ourInstance;
+  @NotNull
+  public static Options getInstance() {
+    return Holder.ourInstance;
   }
 
+  /*
+   * The built-in options. The values of these are read directly on every keystroke, only :set looks options up by
+   * their name.
+   */
+  @NotNull public final ToggleOption digraph = new ToggleOption("digraph", "dg", false);
+  @NotNull public final ToggleOption gdefault = new ToggleOption("gdefault", "gd", false);
+  @NotNull public final NumberOption history = new NumberOption("history", "hi", 20, 1, Integer.MAX_VALUE);
+  @NotNull public final ToggleOption hlsearch = new ToggleOption("hlsearch", "hls", false);
+  @NotNull public final ToggleOption ignorecase = new ToggleOption("ignorecase", "ic", false);
+  @NotNull public final ListOption matchpairs = new ListOption("matchpairs", "mps", new String[]{"(:)", "{:}", "[:]"}, ".:.");
+  @NotNull public final NumberOption maxmapdepth = new NumberOption(MAX_MAP_DEPTH, "mmd", 1000, 1, Integer.MAX_VALUE);
+  @NotNull public final ToggleOption more = new ToggleOption("more", "more", true);
+  @NotNull public final BoundListOption nrformats = new BoundListOption("nrformats", "nf", new String[]{"octal", "hex"}, new String[]{"octal", "hex", "alpha"});
+  @NotNull public final NumberOption scroll = new NumberOption("scroll", "scr", 0);
+  @NotNull public final NumberOption scrolljump = new NumberOption("scrolljump", "sj", 1);
+  @NotNull public final NumberOption scrolloff = new NumberOption("scrolloff", "so", 0);
+  @NotNull public final BoundStringOption selection = new BoundStringOption("selection", "sel", "inclusive", new String[]{"old", "inclusive", "exclusive"});
+  @NotNull public final ToggleOption showmode = new ToggleOption("showmode", "smd", false);
+  @NotNull public final NumberOption sidescroll = new NumberOption("sidescroll", "ss", 0);
+  @NotNull public final NumberOption sidescrolloff = new NumberOption("sidescrolloff", "siso", 0);
+  @NotNull public final ToggleOption smartcase = new ToggleOption("smartcase", "scs", false);
+  @NotNull public final NumberOption timeoutlen = new NumberOption("timeoutlen", "tm", 1000, -1, Integer.MAX_VALUE);
+  @NotNull public final NumberOption undolevels = new NumberOption("undolevels", "ul", 1000, -1, Integer.MAX_VALUE);
+  @NotNull public final ToggleOption visualbell = new ToggleOption("visualbell", "vb", false);
+  @NotNull public final ToggleOption wrapscan = new ToggleOption("wrapscan", "ws", true);
+  @NotNull public final ToggleOption number = new ToggleOption(NUMBER, "nu", false);
+  @NotNull public final ToggleOption relativenumber = new ToggleOption(RELATIVE_NUMBER, "rnu", false);
+  @NotNull public final ListOption clipboard = new ListOption(CLIPBOARD, "cb", new String[]{"autoselect,exclude:cons\\|linux"}, null);
+  @NotNull public final ToggleOption incsearch = new ToggleOption(INCREMENTAL_SEARCH, "is", false);
+  @NotNull public final ToggleOption timeout = new ToggleOption(TIMEOUT, "to", true);
+  @NotNull public final ListOption viminfo = new ListOption(VIMINFO, "vi", new String[]{"'100", "<50", "s10", "h"}, null);
+  @NotNull public final KeywordOption iskeyword = new KeywordOption("iskeyword", "isk", new String[]{"@", "48-57", "_"});
+
   /**
    * Convenience method to check if a boolean option is set or not
    *
@@ -445,33 +477,34 @@ public class Options {
    * Creates all the supported options
    */
   private void createDefaultOptions() {
-    addOption(new ToggleOption("digraph", "dg", false));
-    addOption(new ToggleOption("gdefault", "gd", false));
-    addOption(new NumberOption("history", "hi", 20, 1, Integer.MAX_VALUE));
-    addOption(new ToggleOption("hlsearch", "hls", false));
-    addOption(new ToggleOption("ignorecase", "ic", false));
-    addOption(new ListOption("matchpairs", "mps", new String[]{"(:)", "{:}", "[:]"}, ".:."));
-    addOption(new ToggleOption("more", "more", true));
-    addOption(new BoundListOption("nrformats", "nf", new String[]{"octal", "hex"}, new String[]{"octal", "hex", "alpha"}));
-    addOption(new NumberOption("scroll", "scr", 0));
-    addOption(new NumberOption("scrolljump", "sj", 1));
-    addOption(new NumberOption("scrolloff", "so", 0));
-    addOption(new BoundStringOption("selection", "sel", "inclusive", new String[]{"old", "inclusive", "exclusive"}));
-    addOption(new ToggleOption("showmode", "smd", false));
-    addOption(new NumberOption("sidescroll", "ss", 0));
-    addOption(new NumberOption("sidescrolloff", "siso", 0));
-    addOption(new ToggleOption("smartcase", "scs", false));
-    addOption(new NumberOption("timeoutlen", "tm", 1000, -1, Integer.MAX_VALUE));
-    addOption(new NumberOption("undolevels", "ul", 1000, -1, Integer.MAX_VALUE));
-    addOption(new ToggleOption("visualbell", "vb", false));
-    addOption(new ToggleOption("wrapscan", "ws", true));
-    addOption(new ToggleOption(NUMBER, "nu", false));
-    addOption(new ToggleOption(RELATIVE_NUMBER, "rnu", false));
-    addOption(new ListOption(CLIPBOARD, "cb", new String[]{"autoselect,exclude:cons\\|linux"}, null));
-    addOption(new ToggleOption(INCREMENTAL_SEARCH, "is", false));
-    addOption(new ToggleOption(TIMEOUT, "to", true));
-    addOption(new ListOption(VIMINFO, "vi", new String[]{"'100", "<50", "s10", "h"}, null));
-    addOption(new KeywordOption("iskeyword", "isk", new String[]{"@", "48-57", "_"}));
+    addOption(digraph);
+    addOption(gdefault);
+    addOption(history);
+    addOption(hlsearch);
+    addOption(ignorecase);
+    addOption(matchpairs);
+    addOption(maxmapdepth);
+    addOption(more);
+    addOption(nrformats);
+    addOption(scroll);
+    addOption(scrolljump);
+    addOption(scrolloff);
+    addOption(selection);
+    addOption(showmode);
+    addOption(sidescroll);
+    addOption(sidescrolloff);
+    addOption(smartcase);
+    addOption(timeoutlen);
+    addOption(undolevels);
+    addOption(visualbell);
+    addOption(wrapscan);
+    addOption(number);
+    addOption(relativenumber);
+    addOption(clipboard);
+    addOption(incsearch);
+    addOption(timeout);
+    addOption(viminfo);
+    addOption(iskeyword);
 
     registerExtensionOptions();
   }
@@ -508,7 +541,9 @@ public class Options {
   @NotNull private final HashMap<String, Option> options = new LinkedHashMap<>();
   @NotNull private final HashMap<String, Option> abbrevs = new LinkedHashMap<>();
 
-  private static Options ourInstance;
+  private static class Holder {
+    private static final Options ourInstance = new Options();
+  }
 
   private static final Logger logger = Logger.getInstance(Options.class.getName());
 }
@@ -134,5 +134,5 @@ public class StringOption extends TextOption {
   }
 
   protected final String dflt;
-  protected String value;
+  protected volatile String value;
 }
@@ -118,5 +118,5 @@ public class ToggleOption extends Option {
   }
 
   protected final boolean dflt;
-  protected boolean value;
+  protected volatile boolean value;
 }
@@ -18,16 +18,53 @@
 
 package com.maddyhome.idea.vim.ui;
 
+import com.intellij.openapi.application.ApplicationActivationListener;
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.ide.CopyPasteManager;
+import com.intellij.openapi.wm.IdeFrame;
+import com.intellij.util.concurrency.AppExecutorUtil;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.awt.*;
 import java.awt.datatransfer.*;
 import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * This is a utility class for working with the system clipboard
+ *
+ * The clipboard text is cached until the clipboard may have been changed by someone else: when the clipboard content
+ * set here is replaced, when the data flavors change, when the IDE copies something and when the IDE is activated again
+ * after another application may have been used. Each cached text has its own generation number, so callers can keep
+ * data derived from the text until the generation changes. Large texts are put into the clipboard on a background
+ * thread, the clipboard isn't accessed again until that is done, so the writes and reads keep their order.
  */
 public class ClipboardHandler {
+  /**
+   * Texts longer than this are put into the clipboard on a background thread
+   */
+  private static final int BACKGROUND_WRITE_LENGTH = 64 * 1024;
+
+  @NotNull private static final ExecutorService writer =
+    AppExecutorUtil.createBoundedApplicationPoolExecutor("IdeaVim clipboard", 1);
+
+  /**
+   * The cached clipboard text, null if it has to be fetched from the clipboard again
+   */
+  @Nullable private static volatile Snapshot snapshot;
+  /**
+   * Increased whenever the cached text is dropped or replaced
+   */
+  private static volatile int generation;
+  /**
+   * The last text being put into the clipboard on the background thread
+   */
+  @Nullable private static Future<?> pendingWrite;
+  private static boolean listening;
+
   /**
    * Returns the string currently on the system clipboard.
    *
@@ -35,6 +72,32 @@ public class ClipboardHandler {
    */
   @Nullable
   public static String getClipboardText() {
+    final Snapshot current = snapshot;
+    if (current != null) {
+      return current.text;
+    }
+    awaitPendingWrite();
+    if (!listen()) {
+      // Nothing tells us about the changes, so every fetched text is treated as a new one
+      invalidate();
+      return fetchClipboardText();
+    }
+    final int fetchGeneration = generation;
+    final String text = fetchClipboardText();
+    cache(new Snapshot(text, null), fetchGeneration);
+    return text;
+  }
+
+  /**
+   * Returns the generation of the clipboard text, it changes whenever the text returned by {@link #getClipboardText()}
+   * may have changed. Read it before getting the text, so a change in between isn't missed.
+   */
+  public static int getGeneration() {
+    return generation;
+  }
+
+  @Nullable
+  private static String fetchClipboardText() {
     String res = null;
     try {
       Clipboard board = Toolkit.getDefaultToolkit().getSystemClipboard();
@@ -63,14 +126,110 @@ public class ClipboardHandler {
    *
    * @param text The text to add to the clipboard
    */
-  public static void setClipboardText(String text) {
+  public static void setClipboardText(@NotNull String text) {
+    final StringSelection data = new StringSelection(text);
+    invalidate();
+    if (listen()) {
+      cache(new Snapshot(text, data), generation);
+    }
+    if (text.length() > BACKGROUND_WRITE_LENGTH) {
+      pendingWrite = writer.submit(() -> putClipboardContents(data));
+    }
+    else {
+      awaitPendingWrite();
+      putClipboardContents(data);
+    }
+  }
+
+  private static void awaitPendingWrite() {
+    final Future<?> write = pendingWrite;
+    if (write == null) {
+      return;
+    }
+    try {
+      write.get();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    catch (ExecutionException e) {
+      // ignore
+    }
+    pendingWrite = null;
+  }
+
+  private static void putClipboardContents(@NotNull StringSelection data) {
     try {
       Clipboard board = Toolkit.getDefaultToolkit().getSystemClipboard();
-      StringSelection data = new StringSelection(text);
-      board.setContents(data, null);
+      board.setContents(data, ClipboardHandler::lostOwnership);
     }
     catch (HeadlessException e) {
       // ignore
     }
+    catch (IllegalStateException e) {
+      // The clipboard is currently unavailable
+      invalidate();
+    }
+  }
+
+  private static void lostOwnership(@NotNull Clipboard clipboard, @NotNull Transferable contents) {
+    final Snapshot current = snapshot;
+    if (current != null && current.contents == contents) {
+      invalidate();
+    }
+  }
+
+  private static synchronized void invalidate() {
+    snapshot = null;
+    generation++;
+  }
+
+  /**
+   * Caches the text unless the clipboard has changed since the given generation
+   */
+  private static synchronized void cache(@NotNull Snapshot newSnapshot, int snapshotGeneration) {
+    if (generation == snapshotGeneration) {
+      snapshot = newSnapshot;
+    }
+  }
+
+  /**
+   * Starts listening to clipboard changes, the clipboard text is only cached while listening.
+   */
+  private static synchronized boolean listen() {
+    if (!listening) {
+      try {
+        Toolkit.getDefaultToolkit().getSystemClipboard().addFlavorListener(e -> invalidate());
+      }
+      catch (HeadlessException e) {
+        return false;
+      }
+      CopyPasteManager.getInstance().addContentChangedListener((oldTransferable, newTransferable) -> invalidate());
+      ApplicationManager.getApplication().getMessageBus().connect()
+        .subscribe(ApplicationActivationListener.TOPIC, new ApplicationActivationListener.Adapter() {
+          @Override
+          public void applicationActivated(IdeFrame ideFrame) {
+            invalidate();
+          }
+        });
+      listening = true;
+    }
+    return true;
+  }
+
+  private static class Snapshot {
+    /**
+     * The clipboard text, null if the clipboard doesn't contain text
+     */
+    @Nullable private final String text;
+    /**
+     * The contents put into the clipboard here, null for text fetched from the clipboard
+     */
+    @Nullable private final Transferable contents;
+
+    private Snapshot(@Nullable String text, @Nullable Transferable contents) {
+      this.text = text;
+      this.contents = contents;
+    }
   }
 }
@@ -36,8 +36,12 @@ import java.awt.event.ComponentAdapter;
 import java.awt.event.ComponentEvent;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * This panel displays text in a <code>more</code> like window.
@@ -48,11 +52,16 @@ public class ExOutputPanel extends JPanel {
   @NotNull private final JLabel myLabel = new JLabel("more");
   @NotNull private final JTextArea myText = new JTextArea();
   @NotNull private final JScrollPane myScrollPane =
-    new JBScrollPane(myText, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
+    new JBScrollPane(myText, JScrollPane.VERTICAL_SCROLLBAR_NEVER, JScrollPane.HORIZONTAL_SCROLLBAR_NEVER);
   @NotNull private final ComponentAdapter myAdapter;
   private boolean myAtEnd = false;
   private int myLineHeight = 0;
 
+  // Only the lines from the top of the visible page onwards that were already pulled from the source are kept
+  @NotNull private final ArrayDeque<String> myPage = new ArrayDeque<>();
+  @NotNull private Iterator<String> mySource = Collections.emptyIterator();
+  private int myVisibleLines = 1;
+
   @Nullable private JComponent myOldGlass = null;
   @Nullable private LayoutManager myOldLayout = null;
   private boolean myWasOpaque = false;
@@ -105,13 +114,16 @@ public class ExOutputPanel extends JPanel {
   }
 
   public void setText(@NotNull String data) {
-    if (data.length() > 0 && data.charAt(data.length() - 1) == '\n') {
-      data = data.substring(0, data.length() - 1);
-    }
+    setLines(new LineIterator(data));
+  }
 
-    myText.setText(data);
-    myText.setCaretPosition(0);
-    if (data.length() > 0) {
+  /**
+   * Shows lazily produced output. Lines are pulled from the source only when they are about to be displayed.
+   */
+  public void setLines(@NotNull Iterator<String> lines) {
+    mySource = lines;
+    myPage.clear();
+    if (fill(1)) {
       activate();
     }
   }
@@ -123,6 +135,8 @@ public class ExOutputPanel extends JPanel {
     if (!myActive) return;
     myActive = false;
     myText.setText("");
+    myPage.clear();
+    mySource = Collections.emptyIterator();
     if (refocusOwningEditor) {
       UiHelper.requestFocus(myEditor.getContentComponent());
     }
@@ -167,36 +181,74 @@ public class ExOutputPanel extends JPanel {
     myLabel.setFont(font);
   }
 
-  private static int countLines(@NotNull String text) {
-    if (text.length() == 0) {
-      return 0;
-    }
-
-    int count = 0;
-    int pos = -1;
-    while ((pos = text.indexOf('\n', pos + 1)) != -1) {
-      count++;
-    }
-
-    if (text.charAt(text.length() - 1) != '\n') {
-      count++;
+  /**
+   * Pulls lines from the source until the page holds at least the given number of lines.
+   *
+   * @return False if the source ran out of lines first
+   */
+  private boolean fill(int count) {
+    while (myPage.size() < count) {
+      if (!mySource.hasNext()) {
+        return false;
+      }
+      myPage.addLast(mySource.next());
     }
-
-    return count;
+    return true;
   }
 
   private void scrollLine() {
-    scrollOffset(myLineHeight);
+    scrollLines(1);
   }
 
   private void scrollPage() {
-    scrollOffset(myScrollPane.getVerticalScrollBar().getVisibleAmount());
+    scrollLines(myVisibleLines);
   }
 
   private void scrollHalfPage() {
-    double sa = myScrollPane.getVerticalScrollBar().getVisibleAmount() / 2.0;
-    double offset = Math.ceil(sa / myLineHeight) * myLineHeight;
-    scrollOffset((int)offset);
+    scrollLines((myVisibleLines + 1) / 2);
+  }
+
+  private void scrollLines(int count) {
+    // Never scroll past the point where the last page is fully visible
+    for (int i = 0; i < count && fill(myVisibleLines + 1); i++) {
+      myPage.removeFirst();
+    }
+    showPage();
+  }
+
+  private void scrollToEnd() {
+    while (mySource.hasNext()) {
+      myPage.addLast(mySource.next());
+      if (myPage.size() > myVisibleLines) {
+        myPage.removeFirst();
+      }
+    }
+    showPage();
+  }
+
+  private void showPage() {
+    final StringBuilder builder = new StringBuilder();
+    int count = 0;
+    for (String line : myPage) {
+      if (count == myVisibleLines) {
+        break;
+      }
+      if (count > 0) {
+        builder.append('\n');
+      }
+      builder.append(line);
+      count++;
+    }
+    myText.setText(builder.toString());
+    myText.setCaretPosition(0);
+
+    myAtEnd = !fill(myVisibleLines + 1);
+    if (myAtEnd) {
+      myLabel.setText("Hit ENTER or type command to continue");
+    }
+    else {
+      myLabel.setText("-- MORE --");
+    }
   }
 
   private void handleEnter() {
@@ -212,30 +264,15 @@ public class ExOutputPanel extends JPanel {
     myLabel.setText("-- MORE -- (RET: line, SPACE: page, d: half page, q: quit)");
   }
 
-  private void scrollOffset(int more) {
-    myAtEnd = false;
-    int val = myScrollPane.getVerticalScrollBar().getValue();
-    myScrollPane.getVerticalScrollBar().setValue(val + more);
-    myScrollPane.getHorizontalScrollBar().setValue(0);
-    if (val + more >=
-        myScrollPane.getVerticalScrollBar().getMaximum() - myScrollPane.getVerticalScrollBar().getVisibleAmount()) {
-      myAtEnd = true;
-      myLabel.setText("Hit ENTER or type command to continue");
-    }
-    else {
-      myLabel.setText("-- MORE --");
-    }
-  }
-
   private void positionPanel() {
     final JComponent contentComponent = myEditor.getContentComponent();
     Container scroll = SwingUtilities.getAncestorOfClass(JScrollPane.class, contentComponent);
     setSize(scroll.getSize());
 
     myLineHeight = myText.getFontMetrics(myText.getFont()).getHeight();
-    int count = countLines(myText.getText());
-    int visLines = getSize().height / myLineHeight - 1;
-    int lines = Math.min(count, visLines);
+    myVisibleLines = Math.max(1, getSize().height / myLineHeight - 1);
+    fill(myVisibleLines);
+    int lines = Math.min(myPage.size(), myVisibleLines);
     setSize(getSize().width, lines * myLineHeight + myLabel.getPreferredSize().height +
                              getBorder().getBorderInsets(this).top * 2);
 
@@ -248,13 +285,11 @@ public class ExOutputPanel extends JPanel {
     bounds.setLocation(pos);
     setBounds(bounds);
 
-    myScrollPane.getVerticalScrollBar().setValue(0);
-    if (!Options.getInstance().isSet("more")) {
-      // FIX
-      scrollOffset(100000);
+    if (!Options.getInstance().more.getValue()) {
+      scrollToEnd();
     }
     else {
-      scrollOffset(0);
+      showPage();
     }
   }
 
@@ -279,6 +314,34 @@ public class ExOutputPanel extends JPanel {
     });
   }
 
+  /**
+   * Splits text into lines on demand. A trailing line separator doesn't produce an empty last line.
+   */
+  private static class LineIterator implements Iterator<String> {
+    @NotNull private final String myData;
+    private int myPos = 0;
+
+    LineIterator(@NotNull String data) {
+      myData = data;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return myPos < myData.length();
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      final int end = myData.indexOf('\n', myPos);
+      final String line = myData.substring(myPos, end == -1 ? myData.length() : end);
+      myPos = end == -1 ? myData.length() : end + 1;
+      return line;
+    }
+  }
+
   private static class MoreKeyListener extends KeyAdapter {
     private final ExOutputPanel myExOutputPanel;
 
@@ -35,6 +35,8 @@ import java.awt.*;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 
@@ -89,6 +91,7 @@ public class ExTextField extends JTextField {
     }
 
     if (hkey != null) {
+      historyKey = hkey;
       history = VimPlugin.getHistory().getEntries(hkey, 0, 0);
       histIndex = history.size();
     }
@@ -107,25 +110,27 @@ public class ExTextField extends JTextField {
     }
 
     if (filter) {
-      for (int i = histIndex + dir; i >= 0 && i <= history.size(); i += dir) {
-        String txt;
-        if (i == history.size()) {
-          txt = lastEntry;
-        }
-        else {
-          HistoryGroup.HistoryEntry entry = history.get(i);
-          txt = entry.getEntry();
-        }
-
-        if (txt.startsWith(lastEntry)) {
-          updateText(txt);
-          histIndex = i;
-
-          return;
-        }
+      // Ask the prefix index for the closest matching entry instead of walking the whole history
+      final int number = histIndex == history.size() ? Integer.MAX_VALUE : history.get(histIndex).getNumber();
+      final HistoryGroup.HistoryEntry found = VimPlugin.getHistory().findEntry(historyKey, lastEntry, number, isUp);
+      final int i;
+      if (found != null) {
+        i = Collections.binarySearch(history, found, HISTORY_ORDER);
+      }
+      else {
+        i = isUp ? -1 : history.size();
+      }
+      if (i >= 0 && i < history.size()) {
+        updateText(found.getEntry());
+        histIndex = i;
+      }
+      else if (i == history.size()) {
+        updateText(lastEntry);
+        histIndex = i;
+      }
+      else {
+        VimPlugin.indicateError();
       }
-
-      VimPlugin.indicateError();
     }
     else {
       histIndex = histIndex + dir;
@@ -359,11 +364,15 @@ public class ExTextField extends JTextField {
   private DataContext context;
   private String lastEntry;
   private List<HistoryGroup.HistoryEntry> history;
+  private String historyKey;
   private int histIndex = 0;
   @Nullable private Action currentAction;
   // TODO - support block cursor for overwrite mode
   //private Caret origCaret;
   //private Caret blockCaret;
 
+  private static final Comparator<HistoryGroup.HistoryEntry> HISTORY_ORDER =
+    Comparator.comparingInt(HistoryGroup.HistoryEntry::getNumber);
+
   private static final Logger logger = Logger.getInstance(ExTextField.class.getName());
 }
@@ -15,6 +15,7 @@ import com.intellij.testFramework.fixtures.IdeaTestFixtureFactory;
 import com.intellij.testFramework.fixtures.TestFixtureBuilder;
 import com.intellij.testFramework.fixtures.impl.LightTempDirTestFixtureImpl;
 import com.maddyhome.idea.vim.KeyHandler;
+import com.maddyhome.idea.vim.MotionCoalescer;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.ex.ExOutputModel;
@@ -62,6 +63,7 @@ public abstract class VimTestCase extends UsefulTestCase {
     myFixture = null;
     ExEntryPanel.getInstance().deactivate(false);
     VimScriptGlobalEnvironment.getInstance().getVariables().clear();
+    MotionCoalescer.getInstance().reset();
     super.tearDown();
   }
 
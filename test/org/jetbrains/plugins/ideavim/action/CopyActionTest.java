@@ -33,6 +33,13 @@ public class CopyActionTest extends VimTestCase {
                           "three\n");
   }
 
+  // |quotea| |quoteA|
+  public void testYankAppendToRegister() {
+    typeTextInFile(parseKeys("\"ayiw", "w", "\"Ayiw", "w", "\"Ayiw", "$", "\"ap"),
+                   "<caret>one two three\n");
+    myFixture.checkResult("one two threeonetwothree\n");
+  }
+
   // VIM-723 |p|
   public void testYankPasteToEmptyLine() {
     typeTextInFile(parseKeys("yiw", "j", "p"),
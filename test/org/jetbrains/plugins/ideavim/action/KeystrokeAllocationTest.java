@@ -0,0 +1,88 @@
+package org.jetbrains.plugins.ideavim.action;
+
+import com.intellij.openapi.editor.Caret;
+import com.intellij.openapi.editor.Editor;
+import com.maddyhome.idea.vim.KeyHandler;
+import com.maddyhome.idea.vim.group.MotionGroup;
+import com.maddyhome.idea.vim.helper.EditorDataContext;
+import com.maddyhome.idea.vim.helper.RunnableHelper;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import javax.swing.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
+
+/**
+ * Guards the normal mode motion path against per-keystroke allocations.
+ *
+ * Moving the caret allocates in the platform (caret events, logical and visual positions), so the same caret moves are
+ * measured on their own first and only the difference is checked against the budget. Everything else a keystroke goes
+ * through, from the key handler to the motion action, shouldn't allocate at all. The keys come back to where they
+ * started and don't include jumps, which are recorded in the jump list.
+ */
+public class KeystrokeAllocationTest extends VimTestCase {
+  private static final int WARMUP_KEYSTROKES = 2000;
+  private static final int MEASURED_KEYSTROKES = 10000;
+  /**
+   * Allowance for the rounding of the thread allocation counter, which is only updated per allocation buffer
+   */
+  private static final long COUNTER_GRANULARITY_BYTES_PER_KEYSTROKE = 8;
+
+  public void testMotionsDoNotAllocate() {
+    final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+      return;
+    }
+    final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)threads;
+    if (!bean.isThreadAllocatedMemorySupported()) {
+      return;
+    }
+    bean.setThreadAllocatedMemoryEnabled(true);
+
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      text.append("one two three four\n\n");
+    }
+    configureByText(text.toString());
+    final Editor editor = myFixture.getEditor();
+    final Caret caret = editor.getCaretModel().getPrimaryCaret();
+    final EditorDataContext context = new EditorDataContext(editor);
+    final List<KeyStroke> keys = parseKeys("jwbkllhh");
+    final KeyHandler handler = KeyHandler.getInstance();
+    final int[] offsets = new int[MEASURED_KEYSTROKES];
+    final long[] allocated = new long[2];
+
+    RunnableHelper.runWriteCommand(myFixture.getProject(), () -> {
+      for (int i = 0; i < WARMUP_KEYSTROKES; i++) {
+        handler.handleKey(editor, keys.get(i % keys.size()), context);
+      }
+      final int start = caret.getOffset();
+      for (int i = 0; i < MEASURED_KEYSTROKES; i++) {
+        handler.handleKey(editor, keys.get(i % keys.size()), context);
+        offsets[i] = caret.getOffset();
+      }
+      final long threadId = Thread.currentThread().getId();
+
+      MotionGroup.moveCaret(editor, caret, start);
+      long before = bean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_KEYSTROKES; i++) {
+        MotionGroup.moveCaret(editor, caret, offsets[i]);
+      }
+      allocated[0] = bean.getThreadAllocatedBytes(threadId) - before;
+
+      MotionGroup.moveCaret(editor, caret, start);
+      before = bean.getThreadAllocatedBytes(threadId);
+      for (int i = 0; i < MEASURED_KEYSTROKES; i++) {
+        handler.handleKey(editor, keys.get(i % keys.size()), context);
+      }
+      allocated[1] = bean.getThreadAllocatedBytes(threadId) - before;
+    }, null, null);
+
+    final long perKeystroke = (allocated[1] - allocated[0]) / MEASURED_KEYSTROKES;
+    assertTrue("Allocated " + perKeystroke + " bytes per keystroke on top of the caret move",
+               perKeystroke <= COUNTER_GRANULARITY_BYTES_PER_KEYSTROKE);
+  }
+}
@@ -1,6 +1,7 @@
 package org.jetbrains.plugins.ideavim.action;
 
 import com.intellij.openapi.editor.Editor;
+import com.intellij.util.ui.UIUtil;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.command.CommandState;
 import com.maddyhome.idea.vim.common.Register;
@@ -23,4 +24,57 @@ public class MacroActionTest extends VimTestCase {
     assertNotNull(register);
     assertEquals("3l", register.getText());
   }
+
+  // |@|
+  public void testPlaybackMacroWithCount() {
+    configureByText("<caret>a1\n" +
+                    "a2\n" +
+                    "a3\n" +
+                    "a4\n");
+    typeText(parseKeys("qa", "x", "j", "q", "2@a"));
+    UIUtil.dispatchAllInvocationEvents();
+    myFixture.checkResult("1\n" +
+                          "2\n" +
+                          "3\n" +
+                          "<caret>a4\n");
+  }
+
+  // |@@|
+  public void testPlaybackLastMacro() {
+    configureByText("<caret>a1\n" +
+                    "a2\n" +
+                    "a3\n");
+    typeText(parseKeys("qa", "x", "j", "q", "@a"));
+    UIUtil.dispatchAllInvocationEvents();
+    typeText(parseKeys("@@"));
+    UIUtil.dispatchAllInvocationEvents();
+    myFixture.checkResult("1\n" +
+                          "2\n" +
+                          "<caret>3\n");
+  }
+
+  // |@|
+  public void testPlaybackStopsAtFailingKey() {
+    configureByText("<caret>a1\n" +
+                    "a2\n" +
+                    "a3\n");
+    typeText(parseKeys("qa", "x", "j", "q", "5@a"));
+    UIUtil.dispatchAllInvocationEvents();
+    myFixture.checkResult("1\n" +
+                          "2\n" +
+                          "<caret>3\n");
+  }
+
+  // |@|
+  public void testPlaybackMacroWithExCommand() {
+    configureByText("<caret>a1\n" +
+                    "a2\n" +
+                    "a3\n");
+    VimPlugin.getRegister().setKeys('a', parseKeys(":s/a/b/<Enter>", "j"));
+    typeText(parseKeys("2@a"));
+    UIUtil.dispatchAllInvocationEvents();
+    myFixture.checkResult("b1\n" +
+                          "b2\n" +
+                          "<caret>a3\n");
+  }
 }
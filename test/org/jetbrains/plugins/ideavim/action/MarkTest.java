@@ -1,5 +1,9 @@
 package org.jetbrains.plugins.ideavim.action;
 
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.maddyhome.idea.vim.VimPlugin;
 import com.maddyhome.idea.vim.common.Mark;
 import org.jetbrains.plugins.ideavim.VimTestCase;
@@ -59,6 +63,88 @@ public class MarkTest extends VimTestCase {
     assertNotNull(mark);
   }
 
+  // |m|
+  public void testMarkIsDeletedWhenLineIsDeletedWithCountAbove() {
+    typeTextInFile(parseKeys("mx", "k", "2dd"), "    foo\n" +
+                                               "    ba<caret>r\n" +
+                                               "    baz\n");
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'x');
+    assertNull(mark);
+  }
+
+  // |m| |cc|
+  public void testMarkStaysOnLineWhenLineIsChanged() {
+    typeTextInFile(parseKeys("ma", "cc", "new", "<Esc>", "j", "Obiff", "<Esc>"), "    foo\n" +
+                                                                              "    ba<caret>r\n" +
+                                                                              "    baz\n");
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'a');
+    assertNotNull(mark);
+    assertEquals(1, mark.getLogicalLine());
+  }
+
+  // |m| |S|
+  public void testMarkStaysOnLineWhenLineIsSubstituted() {
+    typeTextInFile(parseKeys("ma", "S", "new", "<Esc>", "k", "obiff", "<Esc>"), "foo\n" +
+                                                                             "ba<caret>r\n" +
+                                                                             "baz\n");
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'a');
+    assertNotNull(mark);
+    assertEquals(2, mark.getLogicalLine());
+  }
+
+  // |m| |cc|
+  public void testMarkStaysOnLastLineWhenLastLineIsChanged() {
+    typeTextInFile(parseKeys("ma", "cc", "new", "<Esc>"), "foo\n" +
+                                                          "ba<caret>r\n");
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'a');
+    assertNotNull(mark);
+    assertEquals(1, mark.getLogicalLine());
+  }
+
+  // |m|
+  public void testMarkIsMovedDownWhenLinesArePutAbove() {
+    typeTextInFile(parseKeys("mx", "gg", "yj", "P"), "foo\n" +
+                                                     "ba<caret>r\n" +
+                                                     "baz\n");
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'x');
+    assertNotNull(mark);
+    assertEquals(3, mark.getLogicalLine());
+    assertEquals(2, mark.getCol());
+  }
+
+  // |m|
+  public void testMarkFollowsEditsWhileAnotherEditorIsOpen() {
+    typeTextInFile(parseKeys("mx"), "foo\n" +
+                                    "ba<caret>r\n" +
+                                    "baz\n");
+    final EditorFactory editorFactory = EditorFactory.getInstance();
+    final Editor other = editorFactory.createEditor(myFixture.getEditor().getDocument(), myFixture.getProject());
+    editorFactory.releaseEditor(other);
+    typeText(parseKeys("gg", "Obiff", "<Esc>"));
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'x');
+    assertNotNull(mark);
+    assertEquals(2, mark.getLogicalLine());
+  }
+
+  // |m|
+  public void testMarkIsReattachedWhenFileIsReopened() {
+    typeTextInFile(parseKeys("mx"), "foo\n" +
+                                    "ba<caret>r\n" +
+                                    "baz\n");
+    final VirtualFile file = myFixture.getFile().getVirtualFile();
+    FileEditorManager.getInstance(myFixture.getProject()).closeFile(file);
+    myFixture.openFileInEditor(file);
+    Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'x');
+    assertNotNull(mark);
+    assertEquals(1, mark.getLogicalLine());
+    assertEquals(2, mark.getCol());
+    typeText(parseKeys("gg", "Obiff", "<Esc>"));
+    mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'x');
+    assertNotNull(mark);
+    assertEquals(2, mark.getLogicalLine());
+    assertEquals(2, mark.getCol());
+  }
+
   // |m|
   public void testMarkIsMovedUpWhenLinesArePartiallyDeletedAbove() {
     typeTextInFile(parseKeys("mx", "2k", "dd", "0dw"), "    foo\n" +
@@ -155,4 +241,22 @@ public class MarkTest extends VimTestCase {
                                                      "four five\n");
     assertOffset(14);
   }
+
+  // |g;|
+  public void testGotoOlderChange() {
+    typeTextInFile(parseKeys("x", "jj", "x", "gg", "g;"), "<caret>one\n" +
+                                                          "two\n" +
+                                                          "three\n");
+    assertOffset(7);
+    typeText(parseKeys("g;"));
+    assertOffset(0);
+  }
+
+  // |g,|
+  public void testGotoNewerChange() {
+    typeTextInFile(parseKeys("x", "jj", "x", "gg", "g;", "g;", "g,"), "<caret>one\n" +
+                                                                      "two\n" +
+                                                                      "three\n");
+    assertOffset(7);
+  }
 }
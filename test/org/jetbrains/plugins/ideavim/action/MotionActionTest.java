@@ -3,6 +3,7 @@ package org.jetbrains.plugins.ideavim.action;
 import com.intellij.json.JsonFileType;
 import com.intellij.openapi.editor.Editor;
 import com.intellij.openapi.editor.VisualPosition;
+import com.intellij.openapi.util.text.StringUtil;
 import com.maddyhome.idea.vim.VimPlugin;
 import org.jetbrains.plugins.ideavim.VimTestCase;
 
@@ -639,6 +640,19 @@ public class MotionActionTest extends VimTestCase {
     myFixture.checkResult("abcde<tag></tag>hi");
   }
 
+  //|d| |v_it|
+  public void testDeleteInnerTagBlockNestedSameName() {
+    typeTextInFile(parseKeys("dit"), "<div><div>x</div>y<caret>z</div>");
+    myFixture.checkResult("<div></div>");
+  }
+
+  //|d| |v_it|
+  public void testDeleteInnerTagBlockManyClosingTagsAfter() {
+    final String siblings = StringUtil.repeat("<p>y</p><br>", 5000);
+    typeTextInFile(parseKeys("2dit"), "<div><span>x<caret>x</span>" + siblings + "</div>");
+    myFixture.checkResult("<div></div>");
+  }
+
   //|d| |v_at|
   public void testDeleteOuterTagBlockBefore() {
     typeTextInFile(parseKeys("dat"), "abc<caret>de<tag>fg</tag>hi");
@@ -798,6 +812,20 @@ public class MotionActionTest extends VimTestCase {
     assertOffset(3);
   }
 
+  // |%|
+  public void testPercentMatchAfterChangeToString() {
+    typeTextInFile(parseKeys("%", "0i\"<Esc>", "$%"),
+                   "(foo) <caret>(bar)\n");
+    assertOffset(11);
+  }
+
+  // |}|
+  public void testParagraphForwardAfterDeletingEmptyLine() {
+    typeTextInFile(parseKeys("}", "dd", "2}"),
+                   "<caret>one\n\ntwo\n\nthree\n\nfour\n");
+    assertOffset(15);
+  }
+
   // |%|
   public void testPercentMatchXmlCommentStart() {
     configureByXmlText("<caret><!-- foo -->");
@@ -1016,6 +1044,41 @@ public class MotionActionTest extends VimTestCase {
     assertOffset(0);
   }
 
+  // |w|
+  public void testWordWithLargeCountOnLongLine() {
+    typeTextInFile(parseKeys("5000w"),
+                   StringUtil.repeat("ab ", 10000) + "\n");
+    assertOffset(15000);
+  }
+
+  // |e|
+  public void testWordEndWithLargeCountOnLongLine() {
+    typeTextInFile(parseKeys("5000e"),
+                   StringUtil.repeat("ab ", 10000) + "\n");
+    assertOffset(14998);
+  }
+
+  // |b|
+  public void testWordBackwardsWithLargeCountOnLongLine() {
+    typeTextInFile(parseKeys("$", "5000b"),
+                   StringUtil.repeat("ab ", 10000) + "\n");
+    assertOffset(15000);
+  }
+
+  // |d| |w|
+  public void testDeleteWordsWithLargeCountOnLongLine() {
+    typeTextInFile(parseKeys("d3000w"),
+                   StringUtil.repeat("ab ", 10000) + "\n");
+    myFixture.checkResult(StringUtil.repeat("ab ", 7000) + "\n");
+  }
+
+  // |d| |aw|
+  public void testDeleteOuterWordsWithLargeCountOnLongLine() {
+    typeTextInFile(parseKeys("d1000aw"),
+                   StringUtil.repeat("ab ", 10000) + "\n");
+    myFixture.checkResult(StringUtil.repeat("ab ", 9000) + "\n");
+  }
+
   public void testRightToLastChar() {
     typeTextInFile(parseKeys("i<Right>"),
                    "on<caret>e\n");
@@ -0,0 +1,95 @@
+package org.jetbrains.plugins.ideavim.action;
+
+import com.intellij.openapi.editor.Editor;
+import com.intellij.openapi.editor.EditorFactory;
+import com.intellij.openapi.editor.event.EditorFactoryEvent;
+import com.intellij.util.ui.UIUtil;
+import com.maddyhome.idea.vim.MotionCoalescer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import javax.swing.*;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
+
+/**
+ * The keystrokes are typed through the coalescer like the typed action handler does, the invocation events aren't
+ * dispatched until the test says so.
+ */
+public class MotionCoalescerTest extends VimTestCase {
+  private static final String TEXT = "<caret>a1\n" +
+                                     "a2\n" +
+                                     "a3\n" +
+                                     "a4\n" +
+                                     "a5\n" +
+                                     "a6\n";
+
+  public void testHeldMotionRunsAsCountedMotion() {
+    configureByText(TEXT);
+    hold("jjjj");
+    assertOffset(3);
+    UIUtil.dispatchAllInvocationEvents();
+    assertOffset(12);
+  }
+
+  public void testOtherKeyRunsHeldMotionFirst() {
+    configureByText(TEXT);
+    hold("jjjx");
+    myFixture.checkResult("a1\n" +
+                          "a2\n" +
+                          "a3\n" +
+                          "<caret>4\n" +
+                          "a5\n" +
+                          "a6\n");
+  }
+
+  public void testExCommandRunsHeldMotionFirst() {
+    configureByText(TEXT);
+    hold("jjj");
+    typeText(commandToKeys("s/a/b/"));
+    myFixture.checkResult("a1\n" +
+                          "a2\n" +
+                          "a3\n" +
+                          "<caret>b4\n" +
+                          "a5\n" +
+                          "a6\n");
+  }
+
+  public void testMacroPlaybackRunsHeldMotionFirst() {
+    configureByText(TEXT);
+    typeText(parseKeys("qa", "x", "q", "u"));
+    hold("jjj");
+    typeText(parseKeys("@a"));
+    UIUtil.dispatchAllInvocationEvents();
+    myFixture.checkResult("a1\n" +
+                          "a2\n" +
+                          "a3\n" +
+                          "<caret>4\n" +
+                          "a5\n" +
+                          "a6\n");
+  }
+
+  public void testActionRunsHeldMotionFirst() {
+    configureByText(TEXT);
+    hold("jjj");
+    myFixture.performEditorAction("EditorLineEnd");
+    assertOffset(11);
+  }
+
+  public void testClosedEditorDropsHeldMotion() {
+    final Editor editor = configureByText(TEXT);
+    hold("jjj");
+    new MotionCoalescer.EditorReleaseListener().editorReleased(new EditorFactoryEvent(EditorFactory.getInstance(),
+                                                                                      editor));
+    UIUtil.dispatchAllInvocationEvents();
+    assertOffset(3);
+  }
+
+  private void hold(@NotNull String keys) {
+    final Editor editor = myFixture.getEditor();
+    final MotionCoalescer coalescer = MotionCoalescer.getInstance();
+    for (KeyStroke key : parseKeys(keys)) {
+      coalescer.handleKey(editor, key);
+    }
+  }
+}
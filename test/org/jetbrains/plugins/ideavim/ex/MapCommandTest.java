@@ -307,4 +307,14 @@ public class MapCommandTest extends VimTestCase {
     typeText(parseKeys(",fa!<Esc>"));
     myFixture.checkResult("Hello!\n");
   }
+
+  public void testRecursiveMappingIsAborted() {
+    configureByText("<caret>foo\n");
+    typeText(commandToKeys("nmap a b"));
+    typeText(commandToKeys("nmap b a"));
+    typeText(parseKeys("a"));
+    assertPluginError(true);
+    assertMode(CommandState.Mode.COMMAND);
+    myFixture.checkResult("foo\n");
+  }
 }
@@ -1,8 +1,14 @@
 package org.jetbrains.plugins.ideavim.ex;
 
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
 import com.maddyhome.idea.vim.command.CommandState;
+import com.maddyhome.idea.vim.ex.ExOutputModel;
 import org.jetbrains.plugins.ideavim.VimTestCase;
 
+import java.io.File;
+import java.io.IOException;
+
 import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
 
 /**
@@ -94,4 +100,104 @@ public class VariousCommandsTest extends VimTestCase {
                           "a/*bc*/de\n" +
                           "-----");
   }
+
+  // |:!|
+  public void testCommandOutputIsShown() {
+    configureByText("<caret>foo\n");
+    typeText(commandToKeys("!echo hello"));
+    assertExOutput("hello\n");
+    myFixture.checkResult("<caret>foo\n");
+  }
+
+  // |:range!|
+  public void testFilterLines() {
+    configureByText("<caret>c\n" +
+                    "b\n" +
+                    "a\n" +
+                    "d\n");
+    typeText(commandToKeys("1,3!sort"));
+    myFixture.checkResult("a\n" +
+                          "b\n" +
+                          "c\n" +
+                          "d\n");
+  }
+
+  // |:range!| with more text than the pipe buffers can hold
+  public void testFilterLargeRange() {
+    final StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      text.append("line ").append(i).append('\n');
+    }
+    configureByText(text.toString());
+    typeText(commandToKeys("%!cat"));
+    myFixture.checkResult(text.toString());
+  }
+
+  // |:read!|
+  public void testReadCommandOutput() {
+    configureByText("<caret>one\n" +
+                    "two\n");
+    typeText(commandToKeys("r !echo foo"));
+    myFixture.checkResult("one\n" +
+                          "<caret>foo\n" +
+                          "two\n");
+  }
+
+  // |:read!|
+  public void testReadCommandOutputAboveFirstLine() {
+    configureByText("one\n" +
+                    "<caret>two\n");
+    typeText(commandToKeys("0r !echo foo"));
+    myFixture.checkResult("<caret>foo\n" +
+                          "one\n" +
+                          "two\n");
+  }
+
+  // |:read|
+  public void testReadFile() throws IOException {
+    final File file = FileUtil.createTempFile("read", ".txt", true);
+    FileUtil.writeToFile(file, "foo\nbar\n");
+    configureByText("<caret>one\n" +
+                    "two");
+    typeText(commandToKeys("2r " + file.getPath()));
+    myFixture.checkResult("one\n" +
+                          "two\n" +
+                          "<caret>foo\n" +
+                          "bar");
+  }
+
+  // |:write_c|
+  public void testWriteLinesToCommand() {
+    configureByText("<caret>one\n" +
+                    "two\n");
+    typeText(commandToKeys("2w !cat"));
+    assertExOutput("two\n");
+    myFixture.checkResult("<caret>one\n" +
+                          "two\n");
+  }
+
+  // |:write_c|
+  public void testWriteBufferToCommand() {
+    configureByText("<caret>one\n" +
+                    "two\n");
+    typeText(commandToKeys("w !cat"));
+    assertExOutput("one\n" +
+                   "two\n");
+  }
+
+  // |:registers|
+  public void testRegistersShowsStartOfLongRegister() {
+    configureByText("<caret>" + StringUtil.repeat("x", 100000) + "\n");
+    typeText(parseKeys("\"ayy"));
+    typeText(commandToKeys("registers"));
+    final String output = ExOutputModel.getInstance(myFixture.getEditor()).getText();
+    assertNotNull(output);
+    for (String line : StringUtil.splitByLines(output)) {
+      if (line.startsWith("\"a")) {
+        assertEquals("\"a   " + StringUtil.repeat("x", 75), line);
+        return;
+      }
+    }
+    fail("No register a in " + output);
+  }
 }
@@ -0,0 +1,79 @@
+package org.jetbrains.plugins.ideavim.ex;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.maddyhome.idea.vim.ex.ExOutputModel;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
+
+public class VimStatsCommandTest extends VimTestCase {
+  // |:vimstats|
+  public void testShowStats() {
+    configureByText("<caret>one\n" +
+                    "two\n" +
+                    "three\n");
+    typeText(parseKeys("jj"));
+    typeText(commandToKeys("vimstats"));
+    final List<String> lines = outputLines();
+    assertTrue(lines.get(0).startsWith("Stage/Action"));
+    final String lookup = findRow(lines, "lookup ");
+    assertNotNull(lookup);
+    assertTrue(lookup.contains(" command "));
+    assertNotNull(findRow(lines, "VimMotionDown "));
+  }
+
+  // |:vimstats|
+  public void testResetStats() {
+    configureByText("<caret>one\n" +
+                    "two\n");
+    typeText(parseKeys("j"));
+    typeText(commandToKeys("vimstats reset"));
+    typeText(commandToKeys("vimstats"));
+    assertNull(findRow(outputLines(), "VimMotionDown "));
+  }
+
+  // |:vimstats|
+  public void testExportCsv() throws IOException {
+    configureByText("<caret>one\n" +
+                    "two\n");
+    typeText(parseKeys("j"));
+    final File file = FileUtil.createTempFile("vimstats", ".csv");
+    typeText(commandToKeys("vimstats csv " + file.getPath()));
+    final List<String> lines = StringUtil.split(FileUtil.loadFile(file), "\n");
+    assertEquals("name,mode,count,p50_ns,p99_ns,max_ns", lines.get(0));
+    final String row = findRow(lines, "VimMotionDown,");
+    assertNotNull(row);
+    assertEquals(6, row.split(",", -1).length);
+  }
+
+  // |:vimstats|
+  public void testInvalidArgument() {
+    configureByText("<caret>one\n");
+    typeText(commandToKeys("vimstats foo"));
+    assertPluginError(true);
+  }
+
+  @NotNull
+  private List<String> outputLines() {
+    final String output = ExOutputModel.getInstance(myFixture.getEditor()).getText();
+    assertNotNull("No Ex output", output);
+    return StringUtil.split(output, "\n");
+  }
+
+  @Nullable
+  private static String findRow(@NotNull List<String> lines, @NotNull String prefix) {
+    for (String line : lines) {
+      if (line.startsWith(prefix)) {
+        return line;
+      }
+    }
+    return null;
+  }
+}
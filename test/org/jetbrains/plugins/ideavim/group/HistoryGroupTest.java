@@ -0,0 +1,92 @@
+package org.jetbrains.plugins.ideavim.group;
+
+import com.maddyhome.idea.vim.group.HistoryGroup;
+import com.maddyhome.idea.vim.option.NumberOption;
+import com.maddyhome.idea.vim.option.Options;
+import org.jdom.Element;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class HistoryGroupTest extends VimTestCase {
+  public void testDuplicateMovesToEnd() {
+    final HistoryGroup history = new HistoryGroup();
+    history.addEntry(HistoryGroup.COMMAND, "one");
+    history.addEntry(HistoryGroup.COMMAND, "two");
+    history.addEntry(HistoryGroup.COMMAND, "one");
+    assertEquals(Arrays.asList("two", "one"), texts(history));
+  }
+
+  public void testTrimmedToHistoryOption() {
+    ((NumberOption)Options.getInstance().getOption("history")).set(3);
+    final HistoryGroup history = new HistoryGroup();
+    for (int i = 0; i < 100; i++) {
+      history.addEntry(HistoryGroup.COMMAND, "cmd" + (i % 7));
+    }
+    assertEquals(Arrays.asList("cmd6", "cmd0", "cmd1"), texts(history));
+  }
+
+  public void testTrimmedWhenHistoryOptionIsLowered() {
+    final HistoryGroup history = new HistoryGroup();
+    history.addEntry(HistoryGroup.COMMAND, "one");
+    history.addEntry(HistoryGroup.COMMAND, "two");
+    history.addEntry(HistoryGroup.COMMAND, "three");
+    Options.getInstance().history.set(2);
+    assertEquals(Arrays.asList("two", "three"), texts(history));
+  }
+
+  public void testFindEntryWithoutPrefix() {
+    final HistoryGroup history = new HistoryGroup();
+    history.addEntry(HistoryGroup.COMMAND, "one");
+    history.addEntry(HistoryGroup.COMMAND, "two");
+    history.addEntry(HistoryGroup.COMMAND, "three");
+    history.addEntry(HistoryGroup.COMMAND, "one");
+    final HistoryGroup.HistoryEntry newest = history.findEntry(HistoryGroup.COMMAND, "", Integer.MAX_VALUE, true);
+    assertNotNull(newest);
+    assertEquals("one", newest.getEntry());
+    final HistoryGroup.HistoryEntry older = history.findEntry(HistoryGroup.COMMAND, "", newest.getNumber(), true);
+    assertNotNull(older);
+    assertEquals("three", older.getEntry());
+    final HistoryGroup.HistoryEntry newer = history.findEntry(HistoryGroup.COMMAND, "", older.getNumber(), false);
+    assertNotNull(newer);
+    assertEquals("one", newer.getEntry());
+    assertNull(history.findEntry(HistoryGroup.COMMAND, "", newer.getNumber(), false));
+  }
+
+  public void testFindEntryByPrefix() {
+    final HistoryGroup history = new HistoryGroup();
+    history.addEntry(HistoryGroup.COMMAND, "set nu");
+    history.addEntry(HistoryGroup.COMMAND, "echo 1");
+    history.addEntry(HistoryGroup.COMMAND, "set hls");
+    final HistoryGroup.HistoryEntry newest = history.findEntry(HistoryGroup.COMMAND, "set", Integer.MAX_VALUE, true);
+    assertNotNull(newest);
+    assertEquals("set hls", newest.getEntry());
+    final HistoryGroup.HistoryEntry older = history.findEntry(HistoryGroup.COMMAND, "set", newest.getNumber(), true);
+    assertNotNull(older);
+    assertEquals("set nu", older.getEntry());
+    assertNull(history.findEntry(HistoryGroup.COMMAND, "set", older.getNumber(), true));
+  }
+
+  public void testSaveAndRead() {
+    final HistoryGroup history = new HistoryGroup();
+    history.addEntry(HistoryGroup.COMMAND, "s/a\\nb/c/");
+    history.addEntry(HistoryGroup.COMMAND, " leading space");
+    history.addEntry(HistoryGroup.COMMAND, "multi\nline");
+    final Element element = new Element("test");
+    history.saveData(element);
+
+    final HistoryGroup restored = new HistoryGroup();
+    restored.readData(element);
+    assertEquals(texts(history), texts(restored));
+  }
+
+  private static List<String> texts(HistoryGroup history) {
+    final List<String> res = new ArrayList<>();
+    for (HistoryGroup.HistoryEntry entry : history.getEntries(HistoryGroup.COMMAND, 0, 0)) {
+      res.add(entry.getEntry());
+    }
+    return res;
+  }
+}
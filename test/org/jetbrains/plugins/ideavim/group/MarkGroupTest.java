@@ -0,0 +1,158 @@
+package org.jetbrains.plugins.ideavim.group;
+
+import com.intellij.openapi.fileEditor.FileEditorManager;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.maddyhome.idea.vim.VimPlugin;
+import com.maddyhome.idea.vim.common.Mark;
+import com.maddyhome.idea.vim.option.Options;
+import org.jdom.Element;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import java.util.List;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
+
+public class MarkGroupTest extends VimTestCase {
+  public void testClosedFileMarksAreSavedAsRead() {
+    VimPlugin.getMark().readData(viminfo("/closed/round-trip.txt"));
+    final Element file = savedFile("/closed/round-trip.txt");
+    assertNotNull(file);
+    assertEquals("3", getMark(file, "a").getAttributeValue("line"));
+    assertEquals("1", getMark(file, "a").getAttributeValue("column"));
+    assertEquals("5", getMark(file, "b").getAttributeValue("line"));
+  }
+
+  public void testSavedFormOfClosedFileIsReused() {
+    VimPlugin.getMark().readData(viminfo("/closed/cached.txt"));
+    final Element first = savedFile("/closed/cached.txt");
+    assertNotNull(first);
+    assertSame(first, savedFile("/closed/cached.txt"));
+  }
+
+  public void testMarksOfOpenFileAreAttachedWhenRead() {
+    configureByText("one\n" +
+                    "two\n" +
+                    "three\n" +
+                    "four\n");
+    final String path = myFixture.getFile().getVirtualFile().getPath();
+    VimPlugin.getMark().readData(viminfo(path));
+    typeText(parseKeys("ggObiff<Esc>"));
+    final Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'a');
+    assertNotNull(mark);
+    assertEquals(4, mark.getLogicalLine());
+    assertEquals(1, mark.getCol());
+  }
+
+  public void testMarksSurviveClosingAndReopeningFile() {
+    configureByText("one\n" +
+                    "t<caret>wo\n" +
+                    "three\n");
+    typeText(parseKeys("ma", "j", "mb"));
+    final VirtualFile file = myFixture.getFile().getVirtualFile();
+    FileEditorManager.getInstance(myFixture.getProject()).closeFile(file);
+    final Element saved = savedFile(file.getPath());
+    assertNotNull(saved);
+    assertEquals("1", getMark(saved, "a").getAttributeValue("line"));
+    assertEquals("2", getMark(saved, "b").getAttributeValue("line"));
+    myFixture.openFileInEditor(file);
+    final Mark mark = VimPlugin.getMark().getMark(myFixture.getEditor(), 'a');
+    assertNotNull(mark);
+    assertEquals(1, mark.getLogicalLine());
+    assertEquals(1, mark.getCol());
+  }
+
+  public void testClosedFileMarksAreKeptWithoutViminfo() {
+    final String[] paths = new String[10];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = "/closed/kept" + i + ".txt";
+    }
+    Options.getInstance().viminfo.set("");
+    VimPlugin.getMark().readData(viminfo(paths));
+    Options.getInstance().viminfo.resetDefault();
+    final Element element = new Element("viminfo");
+    VimPlugin.getMark().saveData(element);
+    for (String path : paths) {
+      assertNotNull(savedFile(element, path));
+    }
+  }
+
+  public void testLeastRecentlyUsedClosedFilesAreDroppedBehindOpenFile() {
+    configureByText("one\n" +
+                    "t<caret>wo\n");
+    typeText(parseKeys("ma"));
+    final String openPath = myFixture.getFile().getVirtualFile().getPath();
+    final String[] paths = new String[1500];
+    for (int i = 0; i < paths.length; i++) {
+      paths[i] = "/closed/evicted" + i + ".txt";
+    }
+    VimPlugin.getMark().readData(viminfo(paths));
+    Options.getInstance().viminfo.set("'100000");
+    final Element element = new Element("viminfo");
+    VimPlugin.getMark().saveData(element);
+    //noinspection unchecked
+    final List<Element> files = element.getChild("filemarks").getChildren("file");
+    assertTrue(files.size() < paths.length);
+    assertNull(savedFile(element, paths[0]));
+    assertNotNull(savedFile(element, paths[paths.length - 1]));
+    assertNotNull(savedFile(element, openPath));
+  }
+
+  @NotNull
+  private static Element viminfo(@NotNull String... paths) {
+    final Element fileMarks = new Element("filemarks");
+    for (String path : paths) {
+      final Element file = new Element("file");
+      file.setAttribute("name", path);
+      file.setAttribute("timestamp", "0");
+      file.addContent(mark("a", 3, 1));
+      file.addContent(mark("b", 5, 0));
+      fileMarks.addContent(file);
+    }
+    final Element element = new Element("viminfo");
+    element.addContent(fileMarks);
+    return element;
+  }
+
+  @NotNull
+  private static Element mark(@NotNull String key, int line, int column) {
+    final Element mark = new Element("mark");
+    mark.setAttribute("key", key);
+    mark.setAttribute("line", Integer.toString(line));
+    mark.setAttribute("column", Integer.toString(column));
+    return mark;
+  }
+
+  @Nullable
+  private static Element savedFile(@NotNull String path) {
+    final Element element = new Element("viminfo");
+    VimPlugin.getMark().saveData(element);
+    return savedFile(element, path);
+  }
+
+  @Nullable
+  private static Element savedFile(@NotNull Element element, @NotNull String path) {
+    //noinspection unchecked
+    final List<Element> files = element.getChild("filemarks").getChildren("file");
+    for (Element file : files) {
+      if (path.equals(file.getAttributeValue("name"))) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  @NotNull
+  private static Element getMark(@NotNull Element file, @NotNull String key) {
+    //noinspection unchecked
+    final List<Element> marks = file.getChildren("mark");
+    for (Element mark : marks) {
+      if (key.equals(mark.getAttributeValue("key"))) {
+        return mark;
+      }
+    }
+    fail("No mark " + key);
+    return null;
+  }
+}
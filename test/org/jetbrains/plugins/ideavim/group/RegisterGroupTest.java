@@ -0,0 +1,63 @@
+package org.jetbrains.plugins.ideavim.group;
+
+import com.maddyhome.idea.vim.VimPlugin;
+import com.maddyhome.idea.vim.option.Options;
+import org.jdom.Element;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.maddyhome.idea.vim.helper.StringHelper.parseKeys;
+
+public class RegisterGroupTest extends VimTestCase {
+  public void testRegistersOverLineLimitAreNotSaved() {
+    configureByText("<caret>one\ntwo\nthree\n");
+    typeText(parseKeys("\"ayy", "\"b3yy"));
+    Options.getInstance().viminfo.set("<2");
+    final List<String> saved = savedRegisters();
+    assertTrue(saved.contains("a"));
+    assertFalse(saved.contains("b"));
+  }
+
+  public void testRegistersOverSizeLimitAreNotSaved() {
+    final StringBuilder text = new StringBuilder("<caret>");
+    for (int i = 0; i < 2000; i++) {
+      text.append('x');
+    }
+    configureByText(text.append("\nshort\n").toString());
+    typeText(parseKeys("\"ayy", "j", "\"byy"));
+    Options.getInstance().viminfo.set("s1");
+    final List<String> saved = savedRegisters();
+    assertFalse(saved.contains("a"));
+    assertTrue(saved.contains("b"));
+  }
+
+  public void testRegistersAreSavedWithoutLimits() {
+    configureByText("<caret>one\ntwo\nthree\n");
+    typeText(parseKeys("\"a3yy"));
+    Options.getInstance().viminfo.set("");
+    assertTrue(savedRegisters().contains("a"));
+  }
+
+  public void testOnlyStoringChangesModificationCount() {
+    configureByText("<caret>one\ntwo\nthree\n");
+    final int modificationCount = VimPlugin.getRegister().getModificationCount();
+    typeText(parseKeys("j", "\"a"));
+    assertEquals(modificationCount, VimPlugin.getRegister().getModificationCount());
+    typeText(parseKeys("yy"));
+    assertTrue(VimPlugin.getRegister().getModificationCount() > modificationCount);
+  }
+
+  private static List<String> savedRegisters() {
+    final Element element = new Element("viminfo");
+    VimPlugin.getRegister().saveData(element);
+    //noinspection unchecked
+    final List<Element> registers = element.getChild("registers").getChildren("register");
+    final List<String> names = new ArrayList<String>();
+    for (Element register : registers) {
+      names.add(register.getAttributeValue("name"));
+    }
+    return names;
+  }
+}
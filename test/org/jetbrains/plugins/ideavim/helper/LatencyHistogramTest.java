@@ -0,0 +1,61 @@
+package org.jetbrains.plugins.ideavim.helper;
+
+import com.maddyhome.idea.vim.common.LatencyHistogram;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+public class LatencyHistogramTest extends VimTestCase {
+  public void testEmpty() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(50));
+  }
+
+  public void testSmallValuesAreExact() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 7; i++) {
+      histogram.record(i);
+    }
+    assertEquals(7, histogram.getCount());
+    assertEquals(4, histogram.getPercentile(50));
+    assertEquals(7, histogram.getPercentile(100));
+    assertEquals(7, histogram.getMax());
+  }
+
+  public void testPercentilesAreWithinBucketPrecision() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 100; i++) {
+      histogram.record(1000);
+    }
+    histogram.record(1000000);
+    assertEquals(101, histogram.getCount());
+    assertBetween(1000, 1125, histogram.getPercentile(50));
+    assertBetween(1000, 1125, histogram.getPercentile(99));
+    assertEquals(1000000, histogram.getPercentile(100));
+    assertEquals(1000000, histogram.getMax());
+  }
+
+  public void testValuesAreClamped() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(-5);
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(2, histogram.getCount());
+    assertEquals(0, histogram.getPercentile(50));
+    assertEquals((1L << 36) - 1, histogram.getMax());
+    assertEquals(histogram.getMax(), histogram.getPercentile(100));
+  }
+
+  public void testReset() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1000);
+    histogram.record(2000);
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+  private static void assertBetween(long min, long max, long actual) {
+    assertTrue(actual + " is not between " + min + " and " + max, actual >= min && actual <= max);
+  }
+}
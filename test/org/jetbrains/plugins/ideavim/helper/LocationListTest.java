@@ -0,0 +1,45 @@
+package org.jetbrains.plugins.ideavim.helper;
+
+import com.maddyhome.idea.vim.common.Jump;
+import com.maddyhome.idea.vim.common.LocationList;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+public class LocationListTest extends VimTestCase {
+  public void testOldestLocationIsDropped() {
+    final LocationList<Jump> list = new LocationList<>(3, false);
+    final Jump first = new Jump(1, 0, "a");
+    final Jump second = new Jump(2, 0, "a");
+    final Jump third = new Jump(3, 0, "a");
+    final Jump fourth = new Jump(4, 0, "a");
+    list.addAll(Arrays.asList(first, second, third, fourth));
+    assertEquals(Arrays.asList(second, third, fourth), new ArrayList<>(list));
+  }
+
+  public void testLocationOnSameLineReplacesOlderOne() {
+    final LocationList<Jump> list = new LocationList<>(3, true);
+    final Jump first = new Jump(1, 0, "a");
+    final Jump second = new Jump(2, 0, "a");
+    final Jump other = new Jump(1, 0, "b");
+    final Jump again = new Jump(1, 5, "a");
+    list.addAll(Arrays.asList(first, second, other, again));
+    assertEquals(Arrays.asList(second, other, again), new ArrayList<>(list));
+  }
+
+  public void testRemovedLocationsDontCountTowardsCapacity() {
+    final LocationList<Jump> list = new LocationList<>(3, true);
+    final Jump first = new Jump(1, 0, "a");
+    final Jump second = new Jump(2, 0, "a");
+    final Jump third = new Jump(3, 0, "a");
+    list.addAll(Arrays.asList(first, second, third));
+    for (int i = 0; i < 10; i++) {
+      list.add(new Jump(2, i, "a"));
+    }
+    assertEquals(3, list.size());
+    assertSame(first, list.get(0));
+    assertSame(third, list.get(1));
+    assertEquals(9, list.get(2).getCol());
+  }
+}
@@ -0,0 +1,43 @@
+package org.jetbrains.plugins.ideavim.helper;
+
+import com.maddyhome.idea.vim.helper.VimInfo;
+import com.maddyhome.idea.vim.option.Options;
+import org.jetbrains.plugins.ideavim.VimTestCase;
+
+public class VimInfoTest extends VimTestCase {
+  public void testDefaults() {
+    assertEquals(100, VimInfo.getMaxMarkedFiles());
+    assertEquals(50, VimInfo.getMaxRegisterLines());
+    assertEquals(10 * 1024, VimInfo.getMaxItemSize());
+    assertEquals(20, VimInfo.getMaxHistory(':', 20));
+  }
+
+  public void testEmptyOption() {
+    Options.getInstance().viminfo.set("");
+    assertEquals(0, VimInfo.getMaxMarkedFiles());
+    assertEquals(-1, VimInfo.getMaxRegisterLines());
+    assertEquals(-1, VimInfo.getMaxItemSize());
+  }
+
+  public void testParameters() {
+    Options.getInstance().viminfo.set("'7,<3,s2,:5,/4");
+    assertEquals(7, VimInfo.getMaxMarkedFiles());
+    assertEquals(3, VimInfo.getMaxRegisterLines());
+    assertEquals(2 * 1024, VimInfo.getMaxItemSize());
+    assertEquals(5, VimInfo.getMaxHistory(':', 20));
+    assertEquals(4, VimInfo.getMaxHistory('/', 20));
+  }
+
+  public void testOldRegisterLinesParameter() {
+    Options.getInstance().viminfo.set("\"6");
+    assertEquals(6, VimInfo.getMaxRegisterLines());
+    Options.getInstance().viminfo.set("\"6,<2");
+    assertEquals(2, VimInfo.getMaxRegisterLines());
+  }
+
+  public void testInvalidValueIsIgnored() {
+    Options.getInstance().viminfo.set("<x,sy");
+    assertEquals(-1, VimInfo.getMaxRegisterLines());
+    assertEquals(-1, VimInfo.getMaxItemSize());
+  }
+}